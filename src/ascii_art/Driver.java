@@ -2,12 +2,23 @@ package ascii_art;
 
 import image.Image;
 
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.InputStream;
 import java.util.logging.Logger;
 
 public class Driver {
+    private static final String STDIN_SCRIPT = "-"; // script name for reading the script from stdin
+    private static final String BATCH = "-batch"; // flag for running a script on several images
+
     public static void main(String[] args) throws Exception {
-        if (args.length != 1) {
-            System.err.println("USAGE: java asciiArt ");
+        if (args.length >= 3 && args[0].equals(BATCH)) {
+            runBatch(args);
+            return;
+        }
+        if (args.length != 1 && args.length != 2) {
+            System.err.println("USAGE: java asciiArt <image> [script|-]");
+            System.err.println("       java asciiArt -batch <script|-> <image>...");
             return;
         }
         Image img = Image.fromFile(args[0]);
@@ -15,6 +26,41 @@ public class Driver {
             Logger.getGlobal().severe("Failed to open image file " + args[0]);
             return;
         }
-        new Shell(img).run();
+        if (args.length == 1) {
+            new Shell(img).run();
+            return;
+        }
+        if (args[1].equals(STDIN_SCRIPT)) {
+            new Shell(img).runScript(System.in);
+            return;
+        }
+        try (InputStream script = new FileInputStream(args[1])) {
+            new Shell(img).runScript(script);
+        }
+    }
+
+    /**
+     * Runs a script on every image in turn. The shells of all the images share their renders, so an image
+     * given more than once, under another name or in another encoding, is rendered only once.
+     * @param args "-batch", the script, then the images
+     */
+    private static void runBatch(String[] args) throws Exception {
+        byte[] script;
+        if (args[1].equals(STDIN_SCRIPT)) {
+            script = System.in.readAllBytes();
+        } else {
+            try (InputStream scriptFile = new FileInputStream(args[1])) {
+                script = scriptFile.readAllBytes();
+            }
+        }
+        RenderCache renderCache = new RenderCache();
+        for (int i = 2; i < args.length; i++) {
+            Image img = Image.fromFile(args[i]);
+            if (img == null) {
+                Logger.getGlobal().severe("Failed to open image file " + args[i]);
+                continue;
+            }
+            new Shell(img, renderCache).runScript(new ByteArrayInputStream(script));
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,91 @@
+package ascii_art;
+
+import ascii_art.img_to_char.ImageFingerprint;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Concurrent index of renders by the fingerprint of their image, so that an image arriving again, under
+ * another name or in another encoding, is rendered only once. Images are matched by their whole
+ * fingerprint, and optionally also by their average hash alone, which accepts re-encodings that changed
+ * some pixels.
+ * The index keeps a bounded number of renders, dropping the least recently used one first.
+ */
+public class RenderCache {
+    private static final int DEFAULT_MAX_RENDERS = 64; // renders kept by default
+    // renders by fingerprint and render settings, in order of use. A render is in the map from the
+    // moment it starts, so that renders of the same image with the same settings wait for it.
+    private final Map<String, CompletableFuture<char[][]>> renders;
+    // fingerprint of the first image of every average hash and render settings, used only when matching
+    // perceptually
+    private final Map<String, ImageFingerprint> perceptualImages;
+    private final boolean matchPerceptually; // whether images with the same average hash share renders
+
+    /**
+     * Constructor for a cache matching images by content hash only, keeping the default number of renders
+     */
+    public RenderCache() {
+        this(false, DEFAULT_MAX_RENDERS);
+    }
+
+    /**
+     * Constructor for a cache
+     * @param matchPerceptually boolean whether images with the same average hash but a different
+     *                          content hash share renders
+     * @param maxRenders int number of renders kept, the least recently used are dropped beyond it
+     */
+    public RenderCache(boolean matchPerceptually, int maxRenders) {
+        this.matchPerceptually = matchPerceptually;
+        this.renders = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompletableFuture<char[][]>> eldest) {
+                return size() > maxRenders;
+            }
+        });
+        this.perceptualImages = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ImageFingerprint> eldest) {
+                return size() > maxRenders;
+            }
+        });
+    }
+
+    /**
+     * Gets the render of an image with the given settings, rendering it only if no image with the same
+     * fingerprint was rendered with these settings before. The render runs in the calling thread, outside
+     * of any lock, and a failed render is not kept. The render returned is shared and must not be changed.
+     * @param fingerprint ImageFingerprint of the image
+     * @param settings String describing everything else the render depends on
+     * @param render Supplier rendering the image
+     * @return array of arrays of chars representing the image
+     */
+    public char[][] getRender(ImageFingerprint fingerprint, String settings, Supplier<char[][]> render) {
+        // both hashes are part of the key, so images must match by both to share a render
+        if (matchPerceptually && !renders.containsKey(fingerprint + ":" + settings)) {
+            // a new image shares the renders of the first image with the same average hash
+            ImageFingerprint perceptualImage = perceptualImages.putIfAbsent(
+                    Long.toHexString(fingerprint.getAverageHash()) + ":" + settings, fingerprint);
+            if (perceptualImage != null) {
+                fingerprint = perceptualImage;
+            }
+        }
+        String key = fingerprint + ":" + settings;
+        CompletableFuture<char[][]> newRender = new CompletableFuture<>();
+        CompletableFuture<char[][]> existingRender = renders.putIfAbsent(key, newRender);
+        if (existingRender != null) {
+            return existingRender.join();
+        }
+        try {
+            newRender.complete(render.get());
+        } catch (RuntimeException e) {
+            renders.remove(key, newRender);
+            newRender.completeExceptionally(e);
+            throw e;
+        }
+        return newRender.join();
+    }
+}
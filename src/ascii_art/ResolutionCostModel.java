@@ -0,0 +1,218 @@
+package ascii_art;
+
+import ascii_art.img_to_char.BrightnessImgCharMatcher;
+import ascii_art.img_to_char.Dither;
+import ascii_output.AsciiOutput;
+import image.Image;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Model of the time and size of a render according to its resolution, calibrated by measuring the
+ * matching throughput of the current machine and the throughput of every type of output it is asked
+ * about. Used to pick the largest resolution that meets a latency or size budget.
+ */
+public class ResolutionCostModel {
+    private static final int CALIBRATION_CHARS_IN_ROW = 64; // resolution matched when calibrating
+    private static final int CALIBRATION_ROUNDS = 5; // timed renders, the fastest is used
+    // untimed rounds before timing matching and pixel reads
+    private static final int CALIBRATION_WARMUP_ROUNDS = 20;
+    private static final int CALIBRATION_PIXEL_ROWS = 64; // pixel rows read when calibrating
+    private static final int OUTPUT_CALIBRATION_ROWS = 16; // rows of the sample written to an output
+    private static final int OUTPUT_CALIBRATION_ROUNDS = 2; // timed writes of every sample, fastest used
+    private static final double NANOS_IN_MILLI = 1e6;
+    private static volatile double pixelSink; // keeps the pixels read when calibrating from being skipped
+    private final Image image; // image being rendered
+    private final double nanosPerCellChar; // time to match a sub-image against a single char
+    private final double nanosPerPixel; // time to read the brightness of a pixel
+    private final char[][] outputSample; // rows of a render, written to measure the throughput of an output
+    private final int charSetSize; // number of chars the sample was matched with
+    // time in nanoseconds of a write regardless of its size, and of every byte, by type of output
+    private final Map<Class<? extends AsciiOutput>, double[]> outputCosts = new HashMap<>();
+
+    /**
+     * Constructor for a model with known throughputs
+     * @param image Image being rendered
+     * @param nanosPerCellChar double time in nanoseconds to match a sub-image against a single char
+     * @param nanosPerPixel double time in nanoseconds to read the brightness of a pixel
+     * @param outputSample array of arrays of chars of a render, written to an output to measure its
+     *                     throughput. Its first row alone is written to measure the cost of any write.
+     * @param charSetSize int number of chars the sample was matched with
+     */
+    public ResolutionCostModel(Image image, double nanosPerCellChar, double nanosPerPixel,
+                               char[][] outputSample, int charSetSize) {
+        this.image = image;
+        this.nanosPerCellChar = nanosPerCellChar;
+        this.nanosPerPixel = nanosPerPixel;
+        this.outputSample = outputSample;
+        this.charSetSize = charSetSize;
+    }
+
+    /**
+     * Measures the throughputs of the current machine by matching the image in a small resolution and
+     * reading some of its pixels. Outputs are measured when first asked about.
+     * @param image Image being rendered
+     * @param matcher BrightnessImgCharMatcher of the image
+     * @param charSet chars to match with
+     * @param minCharsInRow int smallest legal number of chars in a row
+     * @param maxCharsInRow int largest legal number of chars in a row
+     * @return calibrated model
+     */
+    public static ResolutionCostModel calibrate(Image image, BrightnessImgCharMatcher matcher,
+                                                Character[] charSet, int minCharsInRow, int maxCharsInRow) {
+        int numCharsInRow = Math.max(Math.min(CALIBRATION_CHARS_IN_ROW, maxCharsInRow), minCharsInRow);
+        // matching, after untimed renders, the first of which calculates the brightness of the sub-images
+        char[][] chars = null;
+        for (int i = 0; i < CALIBRATION_WARMUP_ROUNDS; i++) {
+            chars = matcher.chooseChars(numCharsInRow, charSet, Dither.NONE, chars);
+        }
+        long bestMatch = Long.MAX_VALUE;
+        for (int i = 0; i < CALIBRATION_ROUNDS; i++) {
+            long start = System.nanoTime();
+            chars = matcher.chooseChars(numCharsInRow, charSet, Dither.NONE, chars);
+            bestMatch = Math.min(bestMatch, System.nanoTime() - start);
+        }
+        long cells = (long) chars.length * numCharsInRow;
+        double nanosPerCellChar = (double) bestMatch / Math.max(1, cells * charSet.length);
+        // reading pixels, after untimed rounds so the timed ones run compiled
+        int pixelRows = Math.min(CALIBRATION_PIXEL_ROWS, image.getHeight());
+        for (int i = 0; i < CALIBRATION_WARMUP_ROUNDS; i++) {
+            measureRead(image, pixelRows);
+        }
+        long bestRead = Long.MAX_VALUE;
+        for (int i = 0; i < CALIBRATION_ROUNDS; i++) {
+            bestRead = Math.min(bestRead, measureRead(image, pixelRows));
+        }
+        double nanosPerPixel = (double) bestRead / Math.max(1, (long) pixelRows * image.getWidth());
+        char[][] outputSample = Arrays.copyOf(chars, Math.min(OUTPUT_CALIBRATION_ROWS, chars.length));
+        return new ResolutionCostModel(image, nanosPerCellChar, nanosPerPixel, outputSample, charSet.length);
+    }
+
+    /**
+     * Measures the throughput of a type of output by writing the sample to it, unless already measured.
+     * A single row is written to measure the cost of any write, apart from the cost of every byte. The
+     * sample is really written, so it shows on the console or replaces the contents of an output file.
+     * @param output AsciiOutput to measure
+     */
+    public void calibrateOutput(AsciiOutput output) {
+        if (outputCosts.containsKey(output.getClass())) {
+            return;
+        }
+        int cols = outputSample.length == 0 ? 0 : outputSample[0].length;
+        char[][] row = Arrays.copyOf(outputSample, Math.min(1, outputSample.length));
+        long bestRow = Long.MAX_VALUE, bestSample = Long.MAX_VALUE;
+        for (int i = 0; i < OUTPUT_CALIBRATION_ROUNDS; i++) {
+            bestRow = Math.min(bestRow, measureWrite(output, row));
+            bestSample = Math.min(bestSample, measureWrite(output, outputSample));
+        }
+        long rowBytes = output.estimateSize(row.length, cols, charSetSize);
+        long sampleBytes = output.estimateSize(outputSample.length, cols, charSetSize);
+        double nanosPerByte = Math.max(0,
+                (double) (bestSample - bestRow) / Math.max(1, sampleBytes - rowBytes));
+        double nanosPerWrite = Math.max(0, bestRow - rowBytes * nanosPerByte);
+        outputCosts.put(output.getClass(), new double[]{nanosPerWrite, nanosPerByte});
+    }
+
+    /**
+     * Measures the time to read the brightness of the pixels of the top rows of the image
+     * @param image Image to read
+     * @param pixelRows int number of rows to read
+     * @return time in nanoseconds
+     */
+    private static long measureRead(Image image, int pixelRows) {
+        double sum = 0;
+        long start = System.nanoTime();
+        for (int y = 0; y < pixelRows; y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                sum += image.getGreyPixel(x, y);
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        pixelSink = sum;
+        return nanos;
+    }
+
+    /**
+     * Measures the time to write chars to an output
+     * @param output AsciiOutput to write to
+     * @param chars array of arrays of chars to write
+     * @return time in nanoseconds
+     */
+    private static long measureWrite(AsciiOutput output, char[][] chars) {
+        long start = System.nanoTime();
+        output.output(chars);
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Estimates the time of rendering and outputting the image in a resolution, when the brightness of
+     * its sub-images is not yet known. The output is calibrated first if its type was not yet.
+     * @param numCharsInRow int number of chars in a row
+     * @param charSetSize int number of chars to match with
+     * @param output AsciiOutput to write to
+     * @return estimated time in milliseconds
+     */
+    public double estimateMillis(int numCharsInRow, int charSetSize, AsciiOutput output) {
+        calibrateOutput(output);
+        double[] outputCost = outputCosts.get(output.getClass());
+        int numCharsInCol = image.getHeight() / (image.getWidth() / numCharsInRow);
+        long cells = (long) numCharsInCol * numCharsInRow;
+        long pixels = (long) image.getWidth() * image.getHeight();
+        return (cells * charSetSize * nanosPerCellChar + pixels * nanosPerPixel + outputCost[0] +
+                estimateBytes(numCharsInRow, charSetSize, output) * outputCost[1]) / NANOS_IN_MILLI;
+    }
+
+    /**
+     * Estimates the size of the output of the image in a resolution
+     * @param numCharsInRow int number of chars in a row
+     * @param charSetSize int number of chars to match with
+     * @param output AsciiOutput to write to
+     * @return estimated size in bytes
+     */
+    public long estimateBytes(int numCharsInRow, int charSetSize, AsciiOutput output) {
+        int numCharsInCol = image.getHeight() / (image.getWidth() / numCharsInRow);
+        return output.estimateSize(numCharsInCol, numCharsInRow, charSetSize);
+    }
+
+    /**
+     * Finds the largest resolution, a power of 2 within the legal boundaries, whose render is estimated
+     * to take no longer than the budget
+     * @param millis double budget in milliseconds
+     * @param minCharsInRow int smallest legal number of chars in a row
+     * @param maxCharsInRow int largest legal number of chars in a row
+     * @param charSetSize int number of chars to match with
+     * @param output AsciiOutput to write to
+     * @return number of chars in a row, or -1 if no resolution meets the budget
+     */
+    public int widthForLatency(double millis, int minCharsInRow, int maxCharsInRow, int charSetSize,
+                               AsciiOutput output) {
+        for (int width = Integer.highestOneBit(maxCharsInRow); width >= minCharsInRow; width /= 2) {
+            if (estimateMillis(width, charSetSize, output) <= millis) {
+                return width;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the largest resolution, a power of 2 within the legal boundaries, whose output is estimated
+     * to be no larger than the budget
+     * @param bytes long budget in bytes
+     * @param minCharsInRow int smallest legal number of chars in a row
+     * @param maxCharsInRow int largest legal number of chars in a row
+     * @param charSetSize int number of chars to match with
+     * @param output AsciiOutput to write to
+     * @return number of chars in a row, or -1 if no resolution meets the budget
+     */
+    public int widthForSize(long bytes, int minCharsInRow, int maxCharsInRow, int charSetSize,
+                            AsciiOutput output) {
+        for (int width = Integer.highestOneBit(maxCharsInRow); width >= minCharsInRow; width /= 2) {
+            if (estimateBytes(width, charSetSize, output) <= bytes) {
+                return width;
+            }
+        }
+        return -1;
+    }
+}
@@ -1,15 +1,24 @@
 package ascii_art;
 
 import ascii_art.img_to_char.BrightnessImgCharMatcher;
+import ascii_art.img_to_char.Dither;
 import ascii_output.AsciiOutput;
 import ascii_output.ConsoleAsciiOutput;
 import ascii_output.HtmlAsciiOutput;
 import image.Image;
 
+import java.io.InputStream;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Scanner;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.logging.Logger;
 
 /**
  * Class for building ascii art
@@ -24,6 +33,9 @@ public class Shell {
     public static final String RES = "res";
     public static final String UP = "up";
     public static final String DOWN = "down";
+    public static final String AUTO = "auto";
+    public static final String MILLIS = "ms";
+    public static final String BYTES = "bytes";
     public static final String ALL = "all";
     public static final String SPACE = "space";
     public static final String CONSOLE = "console";
@@ -36,16 +48,32 @@ public class Shell {
     public static final String UPDATED_WIDTH = "Width set to %d%n";
     private final Image image; // image to be made into ascii art
     private final Set<Character> charSet = new HashSet<>(); // set of chars to use in ascii art
+    private Character[] charArray; // charSet as an array, null if charSet changed since last render
+    private final RenderCache renderCache; // renders shared with every shell given the same cache
     private final BrightnessImgCharMatcher imageCharMatcher; // matches between image sections and chars
     private AsciiOutput output; // output for the ascii art
     private int charsInRow; // number of chars in a row
+    private ResolutionCostModel costModel; // cost of resolutions, calibrated on first use
+    private ExecutorService renderExecutor; // runs renders of a script, null if not running a script
+    private ExecutorService writeExecutor; // writes results of a script in order, null if not running a script
 
     /**
      * Constructor for creating the ascii art
      * @param image Image to be turned into ascii art
      */
     public Shell(Image image){
+        this(image, new RenderCache());
+    }
+
+    /**
+     * Constructor for creating the ascii art of one of several images, so that an image given again is
+     * rendered only once
+     * @param image Image to be turned into ascii art
+     * @param renderCache RenderCache shared by the shells of all the images
+     */
+    public Shell(Image image, RenderCache renderCache){
         this.image = image;
+        this.renderCache = renderCache;
         getCharsInRow(INITIAL_CHARS_IN_ROW);
         this.imageCharMatcher = new BrightnessImgCharMatcher(image, FONT_NAME);
         this.output = new HtmlAsciiOutput(OUTPUT_FILENAME, FONT_NAME);
@@ -60,66 +88,103 @@ public class Shell {
      */
     public void run() {
         Scanner scanner = new Scanner(System.in);
-        while (true) {
+        do {
             System.out.print(">>>");
-            String initialScan = scanner.nextLine();
-            // if no entry we repeat
-            if (initialScan.length() == 0) {
-                continue;
+        } while (execute(scanner.nextLine()));
+    }
+
+    /**
+     * Runs the shell on a script of commands, without a prompt. Renders run in the background while the
+     * following commands are read, and everything is written in the order of the commands.
+     * @param script InputStream of commands, one per line
+     */
+    public void runScript(InputStream script) {
+        renderExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        writeExecutor = Executors.newSingleThreadExecutor();
+        try {
+            Scanner scanner = new Scanner(script);
+            while (scanner.hasNextLine()) {
+                if (!execute(scanner.nextLine())) {
+                    break;
+                }
             }
-            // if entry ends in ' ' it is incorrect
-            if (initialScan.charAt(initialScan.length()-1) == ' '){
-                incorrectCommand();
-                continue;
+        } finally {
+            // let pending renders and writes finish before returning
+            writeExecutor.shutdown();
+            try {
+                writeExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
-            // split entry into an array by spaces
-            String [] scan = initialScan.split(" ");
-            // switch based on first argument given
-            switch (scan[0]) {
-                case EXIT:
-                    // make sure no extra commands were given
-                    if(scan.length == 1){
-                        return;
-                    }
-                    incorrectCommand();
-                    break;
-                case CHARS:
-                    // make sure no extra commands were given
-                    if(scan.length == 1){
-                        getCharSet();
-                        break;
-                    }
-                    incorrectCommand();
-                    break;
-                case ADD:
-                    addChars(scan);
-                    break;
-                case REMOVE:
-                    removeChars(scan);
-                    break;
-                case RES:
-                    changeResolution(scan);
+            renderExecutor.shutdown();
+            writeExecutor = null;
+            renderExecutor = null;
+        }
+    }
+
+    /**
+     * Executes a single command
+     * @param initialScan String command entered
+     * @return false if the command was to exit, true otherwise
+     */
+    private boolean execute(String initialScan) {
+        // if no entry we repeat
+        if (initialScan.length() == 0) {
+            return true;
+        }
+        // if entry ends in ' ' it is incorrect
+        if (initialScan.charAt(initialScan.length()-1) == ' '){
+            incorrectCommand();
+            return true;
+        }
+        // split entry into an array by spaces
+        String [] scan = initialScan.split(" ");
+        // switch based on first argument given
+        switch (scan[0]) {
+            case EXIT:
+                // make sure no extra commands were given
+                if(scan.length == 1){
+                    return false;
+                }
+                incorrectCommand();
+                break;
+            case CHARS:
+                // make sure no extra commands were given
+                if(scan.length == 1){
+                    getCharSet();
                     break;
-                case CONSOLE:
-                    // make sure no extra commands were given
-                    if(scan.length == 1){
-                        output = new ConsoleAsciiOutput();
-                        break;
-                    }
-                    incorrectCommand();
+                }
+                incorrectCommand();
+                break;
+            case ADD:
+                addChars(scan);
+                break;
+            case REMOVE:
+                removeChars(scan);
+                break;
+            case RES:
+                changeResolution(scan);
+                break;
+            case CONSOLE:
+                // make sure no extra commands were given
+                if(scan.length == 1){
+                    output = new ConsoleAsciiOutput();
                     break;
-                case RENDER:
-                    // make sure no extra commands were given
-                    if(scan.length == 1){
-                        renderImage();
-                        break;
-                    }
-                    incorrectCommand();
+                }
+                incorrectCommand();
+                break;
+            case RENDER:
+                // make sure no extra commands were given
+                if(scan.length == 1){
+                    renderImage();
                     break;
-                default:
-                    incorrectCommand();
-            }
+                }
+                incorrectCommand();
+                break;
+            default:
+                incorrectCommand();
         }
+        return true;
     }
 
     /**
@@ -127,26 +192,91 @@ public class Shell {
      * @param newCharsInRow int new charsInRow requested
      */
     private void getCharsInRow(int newCharsInRow) {
-        int minCharsInRow = Math.max(1, image.getWidth() / image.getHeight());
-        int maxCharsInRow = image.getWidth() / MIN_PIXELS_PER_CHAR;
-        this.charsInRow = Math.max(Math.min(newCharsInRow, maxCharsInRow), minCharsInRow);
+        this.charsInRow = Math.max(Math.min(newCharsInRow, getMaxCharsInRow()), getMinCharsInRow());
+    }
+
+    /**
+     * @return smallest legal number of chars in a row
+     */
+    private int getMinCharsInRow() {
+        return Math.max(1, image.getWidth() / image.getHeight());
     }
 
     /**
-     * Renders the image according to the output
+     * @return largest legal number of chars in a row
+     */
+    private int getMaxCharsInRow() {
+        return image.getWidth() / MIN_PIXELS_PER_CHAR;
+    }
+
+    /**
+     * Renders the image according to the output. When running a script the render runs in the
+     * background, with the resolution, chars and output of the moment it was requested.
      */
     private void renderImage() {
-        char [][] charImage = imageCharMatcher.chooseChars(charsInRow, charSet.toArray(new Character[0]));
+        if (charArray == null) {
+            charArray = charSet.toArray(new Character[0]);
+        }
+        if (renderExecutor != null) {
+            Character[] renderChars = charArray;
+            int renderCharsInRow = charsInRow;
+            AsciiOutput renderOutput = output;
+            CompletableFuture<char[][]> render = CompletableFuture.supplyAsync(
+                    () -> render(renderCharsInRow, renderChars), renderExecutor);
+            emit(() -> {
+                try {
+                    char[][] renderImage = render.join();
+                    if (renderImage != null) {
+                        renderOutput.output(renderImage);
+                    }
+                } catch (CompletionException e) {
+                    Logger.getGlobal().severe("Failed to render image: " + e.getCause());
+                }
+            });
+            return;
+        }
+        char [][] charImage = render(charsInRow, charArray);
         if(charImage != null){
             output.output(charImage);
         }
     }
 
+    /**
+     * Renders the image, or reuses the render of an image with the same fingerprint and settings
+     * @param numCharsInRow int number of chars in a row
+     * @param chars Array of Characters to choose from
+     * @return Array of arrays of chars representing the image, shared and not to be changed
+     */
+    private char[][] render(int numCharsInRow, Character[] chars) {
+        char[] sortedChars = new char[chars.length];
+        for (int i = 0; i < chars.length; i++) {
+            sortedChars[i] = chars[i];
+        }
+        Arrays.sort(sortedChars);
+        String settings = numCharsInRow + ":" + Dither.NONE + ":" + new String(sortedChars);
+        // the fingerprint comes from the brightness of this resolution, which the render reuses
+        return renderCache.getRender(imageCharMatcher.getFingerprint(numCharsInRow), settings,
+                () -> imageCharMatcher.chooseChars(numCharsInRow, chars));
+    }
+
     /**
      * Prints incorrect command statement
      */
-    private static void incorrectCommand() {
-        System.out.println(INCORRECT_COMMAND);
+    private void incorrectCommand() {
+        emit(() -> System.out.println(INCORRECT_COMMAND));
+    }
+
+    /**
+     * Runs an action that writes output. When running a script the action is queued behind the output
+     * of the previous commands, otherwise it runs immediately.
+     * @param action Runnable writing output
+     */
+    private void emit(Runnable action) {
+        if (writeExecutor != null) {
+            writeExecutor.execute(action);
+            return;
+        }
+        action.run();
     }
 
     /**
@@ -154,6 +284,10 @@ public class Shell {
      * @param scan String array containing the resolution to change to
      */
     private void changeResolution(String [] scan) {
+        if(scan.length == 3 && scan[1].equals(AUTO)) {
+            autoResolution(scan[2]);
+            return;
+        }
         // checks that there are no extra commands in the array
         if(scan.length != 2) {
             incorrectCommand();
@@ -173,11 +307,81 @@ public class Shell {
         }
         // compares between original resolution and new resolution
         if (oldCharsInRow != charsInRow){
-            System.out.printf(UPDATED_WIDTH, charsInRow);
+            int width = charsInRow;
+            emit(() -> System.out.printf(UPDATED_WIDTH, width));
             return;
         }
         // could not update resolution due to it exceeding legal boundaries
-        System.out.println(EXCEEDING_BOUNDARIES);
+        emit(() -> System.out.println(EXCEEDING_BOUNDARIES));
+    }
+
+    /**
+     * Sets the resolution to the largest one estimated to meet a budget
+     * @param budget String budget, a number of milliseconds followed by "ms" or of bytes followed by
+     *               "bytes"
+     */
+    private void autoResolution(String budget) {
+        // the cost model is calibrated by matching with the current chars
+        if (charSet.isEmpty()) {
+            incorrectCommand();
+            return;
+        }
+        int newCharsInRow;
+        try {
+            if (budget.endsWith(MILLIS)) {
+                double millis = Double.parseDouble(budget.substring(0, budget.length() - MILLIS.length()));
+                if (millis > 0) {
+                    calibrateOutput();
+                }
+                newCharsInRow = millis <= 0 ? -1 : getCostModel().widthForLatency(millis, getMinCharsInRow(),
+                        getMaxCharsInRow(), charSet.size(), output);
+            } else if (budget.endsWith(BYTES)) {
+                long bytes = Long.parseLong(budget.substring(0, budget.length() - BYTES.length()));
+                newCharsInRow = bytes <= 0 ? -1 : getCostModel().widthForSize(bytes, getMinCharsInRow(),
+                        getMaxCharsInRow(), charSet.size(), output);
+            } else {
+                incorrectCommand();
+                return;
+            }
+        } catch (NumberFormatException e) {
+            incorrectCommand();
+            return;
+        }
+        // no resolution within the legal boundaries meets the budget
+        if (newCharsInRow == -1) {
+            emit(() -> System.out.println(EXCEEDING_BOUNDARIES));
+            return;
+        }
+        charsInRow = newCharsInRow;
+        emit(() -> System.out.printf(UPDATED_WIDTH, newCharsInRow));
+    }
+
+    /**
+     * Calibrates the cost model with the current output, by writing a sample render to it. When running
+     * a script the sample is written by the writing thread, after everything emitted before it.
+     */
+    private void calibrateOutput() {
+        ResolutionCostModel model = getCostModel();
+        AsciiOutput calibratedOutput = output;
+        if (writeExecutor != null) {
+            CompletableFuture.runAsync(() -> model.calibrateOutput(calibratedOutput), writeExecutor).join();
+            return;
+        }
+        model.calibrateOutput(calibratedOutput);
+    }
+
+    /**
+     * @return model of the cost of resolutions, calibrated on the first call
+     */
+    private ResolutionCostModel getCostModel() {
+        if (costModel == null) {
+            if (charArray == null) {
+                charArray = charSet.toArray(new Character[0]);
+            }
+            costModel = ResolutionCostModel.calibrate(image, imageCharMatcher, charArray,
+                    getMinCharsInRow(), getMaxCharsInRow());
+        }
+        return costModel;
     }
 
     /**
@@ -186,6 +390,7 @@ public class Shell {
      */
     private void removeChars(String [] scan) {
         editCharSet(scan, charSet::remove, REMOVE);
+        charArray = null;
     }
 
     /**
@@ -194,6 +399,7 @@ public class Shell {
      */
     private void addChars(String [] scan) {
         editCharSet(scan, charSet::add, ADD);
+        charArray = null;
     }
 
     /**
@@ -202,10 +408,10 @@ public class Shell {
      * @param func Consumer function for Characters
      * @param op String name of operation of consumer function
      */
-    private static void editCharSet(String [] scan, Consumer<Character> func, String op) {
+    private void editCharSet(String [] scan, Consumer<Character> func, String op) {
         // check that number of arguments in string array is valid
         if(scan.length != 2) {
-            System.out.printf(INCORRECT_FORMAT, op);
+            emit(() -> System.out.printf(INCORRECT_FORMAT, op));
             return;
         }
         // applies function if the argument is one char
@@ -233,7 +439,7 @@ public class Shell {
                 func.accept(' ');
                 return;
         }
-        System.out.printf(INCORRECT_FORMAT, op);
+        emit(() -> System.out.printf(INCORRECT_FORMAT, op));
 
     }
 
@@ -241,9 +447,10 @@ public class Shell {
      * Prints out all chars in the charSet
      */
     private void getCharSet() {
+        StringBuilder chars = new StringBuilder();
         for (Character character: charSet) {
-            System.out.print(character + " ");
+            chars.append(character).append(' ');
         }
-        System.out.println();
+        emit(() -> System.out.println(chars));
     }
 }
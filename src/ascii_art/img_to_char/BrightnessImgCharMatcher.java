@@ -1,21 +1,48 @@
 package ascii_art.img_to_char;
 
+import ascii_output.AsciiOutput;
 import image.Image;
 
-import java.awt.*;
 import java.util.*;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
 
 /**
  * Class to match image sections with chars
  */
 public class BrightnessImgCharMatcher {
+    // 4x4 Bayer matrix used as thresholds for ordered dithering
+    private static final int[][] BAYER_MATRIX = {
+            {0, 8, 2, 10},
+            {12, 4, 14, 6},
+            {3, 11, 1, 9},
+            {15, 7, 13, 5}};
+    private static final float BAYER_LEVELS = 16f; // number of thresholds in the Bayer matrix
+    private static final int FINGERPRINT_SIZE = 8; // sub-images along each side of the average hash
+    private static final long HASH_MULTIPLIER = 0x100000001b3L; // FNV prime mixing the content hash
     private final Image img; // image to match with chars
     private final String font; // font of chars
-    // map of chars to their brightness level
-    private static final Map<Character, Double> charBrightnessMap = new HashMap<Character, Double>();
-    // map of image resolution to a map of sub-image index to brightness
-    private static final Map<Integer, Map<Integer, Double>> resolutionImagesMap = new HashMap<Integer, Map<Integer, Double>>();
+    private final Normalization normalization; // normalization of the brightness of the sub-images
+    // map of chars to their brightness level, shared by renders running at the same time
+    private static final Map<Character, Double> charBrightnessMap = new ConcurrentHashMap<Character, Double>();
+    // map of image resolution to the brightness of its sub-images. Kept per image, since several images
+    // may be matched in the same run.
+    private final Map<Integer, BrightnessPlane> resolutionImagesMap =
+            new ConcurrentHashMap<Integer, BrightnessPlane>();
+    // buffers reused between renders of the same thread
+    private static final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    /**
+     * Buffers reused between renders of the same thread, so that a render allocates nothing in
+     * proportion to the image once its resolution has been calculated
+     */
+    private static class Scratch {
+        private Character[] charSet; // chars of the last brightness calculated
+        private float[] charBrightness = new float[0]; // normalized brightness of charSet
+        private float[] rowError = new float[0]; // Floyd-Steinberg error of the current row
+        private float[] nextRowError = new float[0]; // Floyd-Steinberg error of the next row
+    }
 
     /**
      * Constructor to match image sections with chars according to brightness
@@ -23,8 +50,20 @@ public class BrightnessImgCharMatcher {
      * @param font String representing font of chars
      */
     public BrightnessImgCharMatcher(Image img, String font){
+        this(img, font, Normalization.NONE);
+    }
+
+    /**
+     * Constructor to match image sections with chars according to brightness, after normalizing the
+     * contrast of the brightness of the sections
+     * @param img Image to turn into chars
+     * @param font String representing font of chars
+     * @param normalization Normalization to apply to the brightness of the sections before matching
+     */
+    public BrightnessImgCharMatcher(Image img, String font, Normalization normalization){
         this.img = img;
         this.font = font;
+        this.normalization = normalization;
     }
 
     /**
@@ -34,87 +73,446 @@ public class BrightnessImgCharMatcher {
      * @return Array of arrays of chars representing the image
      */
     public char[][] chooseChars(int numCharsInRow, Character[] charSet){
-        List<Double> charBrightness = getCharBrightness(charSet);
+        return chooseChars(numCharsInRow, charSet, Dither.NONE);
+    }
+
+    /**
+     * Selects chars to be matched with sections of image, spreading the brightness error between
+     * neighbouring sections according to the dither given
+     * @param numCharsInRow int number of chars in row
+     * @param charSet Set of chars to choose from
+     * @param dither Dither to apply while matching
+     * @return Array of arrays of chars representing the image
+     */
+    public char[][] chooseChars(int numCharsInRow, Character[] charSet, Dither dither){
+        return chooseChars(numCharsInRow, charSet, dither, null);
+    }
+
+    /**
+     * Selects chars to be matched with sections of image into a given array, so that repeated renders
+     * do not allocate a new one
+     * @param numCharsInRow int number of chars in row
+     * @param charSet Set of chars to choose from
+     * @param dither Dither to apply while matching
+     * @param ascii Array of arrays to fill with the chars. Used only if its dimensions match the
+     *              resolution, otherwise a new one is created. May be null.
+     * @return Array of arrays of chars representing the image
+     */
+    public char[][] chooseChars(int numCharsInRow, Character[] charSet, Dither dither, char[][] ascii){
+        float[] charBrightness = getCharBrightness(charSet);
         int charSize = img.getWidth()/numCharsInRow;
         int numCharsInCol = img.getHeight()/charSize;
-        char[][] ascii = new char[numCharsInCol][numCharsInRow];
-        // checks if we already of map between sub-images and their brightness
-        Map<Integer, Double> subImageBrightnessMap = resolutionImagesMap.containsKey(numCharsInCol) ?
-                resolutionImagesMap.get(numCharsInCol) :
-                new HashMap<>();
-        Iterator<Image> it = img.subImages(charSize).iterator();
-        for (int i = 0; i < numCharsInCol; i++){
-            for (int j = 0; j < numCharsInRow; j++){
-                Image image = it.next();
-                double imageBrightness = getImageBrightness(image, i*numCharsInRow + j,
-                        subImageBrightnessMap);
-                // adds most similar character to ascii image
-                ascii[i][j] = getCharByBrightness(charSet, charBrightness, imageBrightness);
+        // checks if we already have the brightness of the sub-images in this resolution
+        BrightnessPlane plane = resolutionImagesMap.get(numCharsInRow);
+        if (plane == null){
+            plane = getCellBrightness(charSize, numCharsInRow, numCharsInCol);
+            resolutionImagesMap.put(numCharsInRow, plane);
+        }
+        float[] cellBrightness = plane.getBrightness(normalization);
+        if (ascii == null || ascii.length != numCharsInCol ||
+                (numCharsInCol > 0 && ascii[0].length != numCharsInRow)) {
+            ascii = new char[numCharsInCol][numCharsInRow];
+        }
+        switch (dither) {
+            case FLOYD_STEINBERG:
+                floydSteinberg(cellBrightness, charSet, charBrightness, ascii);
+                break;
+            case ORDERED:
+                orderedDither(cellBrightness, charSet, charBrightness, ascii);
+                break;
+            default:
+                nearest(cellBrightness, charSet, charBrightness, ascii);
+        }
+        return ascii;
+    }
+
+    /**
+     * Gets a fingerprint of the image as rendered in a resolution. Both hashes come from the brightness of
+     * the sub-images of that resolution, so no sweep over the pixels is made besides the one a render
+     * makes anyway: the content hash is taken from the pixels while their brightness is summed, and the
+     * average hash from the brightness reduced to a grid of 8x8 blocks.
+     * @param numCharsInRow int number of chars in a row
+     * @return ImageFingerprint of the image in this resolution
+     */
+    public ImageFingerprint getFingerprint(int numCharsInRow) {
+        int charSize = img.getWidth()/numCharsInRow;
+        int numCharsInCol = img.getHeight()/charSize;
+        BrightnessPlane plane = resolutionImagesMap.get(numCharsInRow);
+        if (plane == null || !plane.hasContentHash()) {
+            // a plane reduced from one covering more pixels has no hash of its own pixels
+            plane = getCellBrightness(charSize, numCharsInRow, numCharsInCol);
+            resolutionImagesMap.put(numCharsInRow, plane);
+        }
+        float[] cellBrightness = plane.getBrightness();
+        // average hash over a grid of 8x8 blocks of sub-images, each the mean brightness of its sub-images
+        float[] blocks = new float[FINGERPRINT_SIZE * FINGERPRINT_SIZE];
+        float mean = 0;
+        for (int i = 0; i < FINGERPRINT_SIZE; i++) {
+            int rowFrom = i * numCharsInCol / FINGERPRINT_SIZE;
+            int rowTo = Math.min(Math.max((i + 1) * numCharsInCol / FINGERPRINT_SIZE, rowFrom + 1),
+                    numCharsInCol);
+            for (int j = 0; j < FINGERPRINT_SIZE; j++) {
+                int colFrom = j * numCharsInRow / FINGERPRINT_SIZE;
+                int colTo = Math.min(Math.max((j + 1) * numCharsInRow / FINGERPRINT_SIZE, colFrom + 1),
+                        numCharsInRow);
+                float sum = 0;
+                for (int row = rowFrom; row < rowTo; row++) {
+                    for (int col = colFrom; col < colTo; col++) {
+                        sum += cellBrightness[row * numCharsInRow + col];
+                    }
                 }
+                int count = (rowTo - rowFrom) * (colTo - colFrom);
+                blocks[i * FINGERPRINT_SIZE + j] = count > 0 ? sum / count : 0;
+                mean += blocks[i * FINGERPRINT_SIZE + j] / blocks.length;
             }
-        // if new sub-map then we add it to the main map
-        if (!resolutionImagesMap.containsKey(numCharsInRow)){
-            resolutionImagesMap.put(numCharsInRow, subImageBrightnessMap);
         }
-        return ascii;
+        long averageHash = 0;
+        for (float block : blocks) {
+            averageHash = averageHash << 1 | (block > mean ? 1 : 0);
+        }
+        return new ImageFingerprint(averageHash, plane.getContentHash());
+    }
+
+    /**
+     * Selects chars to be matched with sections of image in several resolutions at once. The pixels are
+     * traversed once for the finest resolution, and every coarser resolution is reduced from the
+     * brightness of a finer one whose sub-images fit exactly in it.
+     * @param numCharsInRowLevels int numbers of chars in row, one for every resolution
+     * @param charSet Set of chars to choose from
+     * @return map of number of chars in row to the array of arrays of chars representing the image
+     */
+    public SortedMap<Integer, char[][]> chooseChars(int[] numCharsInRowLevels, Character[] charSet){
+        return chooseChars(numCharsInRowLevels, charSet, Dither.NONE);
+    }
+
+    /**
+     * Selects chars to be matched with sections of image in several resolutions at once, spreading the
+     * brightness error between neighbouring sections according to the dither given
+     * @param numCharsInRowLevels int numbers of chars in row, one for every resolution
+     * @param charSet Set of chars to choose from
+     * @param dither Dither to apply while matching
+     * @return map of number of chars in row to the array of arrays of chars representing the image
+     * @throws IllegalArgumentException if a number of chars in row is not between 1 and the image width
+     */
+    public SortedMap<Integer, char[][]> chooseChars(int[] numCharsInRowLevels, Character[] charSet,
+                                                    Dither dither){
+        int[] levels = Arrays.stream(numCharsInRowLevels).distinct().sorted().toArray();
+        // a sub-image must be at least a pixel wide
+        if (levels.length > 0 && (levels[0] < 1 || levels[levels.length - 1] > img.getWidth())) {
+            throw new IllegalArgumentException(String.format("Chars in row %s out of 1-%d",
+                    Arrays.toString(levels), img.getWidth()));
+        }
+        SortedMap<Integer, char[][]> asciiLevels = new TreeMap<>();
+        if (levels.length == 0) {
+            return asciiLevels;
+        }
+        // brightness of the finest resolution is calculated from the pixels, if not already known
+        int finestCharsInRow = levels[levels.length - 1];
+        int finestCharSize = img.getWidth()/finestCharsInRow;
+        BrightnessPlane finest = resolutionImagesMap.get(finestCharsInRow);
+        if (finest == null){
+            finest = getCellBrightness(finestCharSize, finestCharsInRow, img.getHeight()/finestCharSize);
+            resolutionImagesMap.put(finestCharsInRow, finest);
+        }
+        // coarser resolutions are reduced from the closest finer one they fit into
+        BrightnessPlane finer = finest;
+        for (int level = levels.length - 2; level >= 0; level--) {
+            int numCharsInRow = levels[level];
+            int charSize = img.getWidth()/numCharsInRow;
+            int numCharsInCol = img.getHeight()/charSize;
+            BrightnessPlane plane = resolutionImagesMap.get(numCharsInRow);
+            if (plane == null) {
+                if (!fitsIn(finer, charSize, numCharsInRow, numCharsInCol)) {
+                    // reduce from the finest resolution, or traverse the pixels if it does not fit either
+                    finer = finest;
+                }
+                plane = fitsIn(finer, charSize, numCharsInRow, numCharsInCol) ?
+                        reduceCellBrightness(finer, charSize / (img.getWidth()/finer.getNumCharsInRow()),
+                                charSize, numCharsInRow, numCharsInCol) :
+                        getCellBrightness(charSize, numCharsInRow, numCharsInCol);
+                resolutionImagesMap.put(numCharsInRow, plane);
+            }
+            finer = plane;
+        }
+        for (int numCharsInRow : levels) {
+            asciiLevels.put(numCharsInRow, chooseChars(numCharsInRow, charSet, dither));
+        }
+        return asciiLevels;
+    }
+
+    /**
+     * Selects chars to be matched with sections of image in several resolutions at once, as
+     * {@link #chooseChars(int[], Character[], Dither)} does, and outputs every resolution to its own output
+     * @param outputs map of number of chars in row to the AsciiOutput of that resolution
+     * @param charSet Set of chars to choose from
+     * @param dither Dither to apply while matching
+     * @return map of number of chars in row to the array of arrays of chars representing the image
+     * @throws IllegalArgumentException if a number of chars in row is not between 1 and the image width
+     */
+    public SortedMap<Integer, char[][]> chooseChars(Map<Integer, AsciiOutput> outputs, Character[] charSet,
+                                                    Dither dither){
+        int[] levels = outputs.keySet().stream().mapToInt(Integer::intValue).toArray();
+        SortedMap<Integer, char[][]> asciiLevels = chooseChars(levels, charSet, dither);
+        for (Map.Entry<Integer, char[][]> level : asciiLevels.entrySet()) {
+            outputs.get(level.getKey()).output(level.getValue());
+        }
+        return asciiLevels;
     }
 
     /**
-     * Selects the chars according to the brightness of the image
+     * Checks whether sub-images can be reduced from smaller ones, which requires every sub-image to be
+     * made of whole smaller sub-images, all of them within the finer plane
+     * @param finer brightness of the smaller sub-images
+     * @param charSize int size in pixels of a sub-image
+     * @param numCharsInRow int number of sub-images in a row
+     * @param numCharsInCol int number of sub-images in a column
+     * @return true if the sub-images can be reduced from the finer plane
+     */
+    private boolean fitsIn(BrightnessPlane finer, int charSize, int numCharsInRow, int numCharsInCol) {
+        int finerCharSize = img.getWidth()/finer.getNumCharsInRow();
+        if (charSize % finerCharSize != 0) {
+            return false;
+        }
+        int factor = charSize / finerCharSize;
+        return (long) numCharsInRow * factor <= finer.getNumCharsInRow() &&
+                (long) numCharsInCol * factor <= finer.getNumCharsInCol();
+    }
+
+    /**
+     * Calculates the brightness of sub-images from the brightness of the smaller sub-images they contain.
+     * Rows of sub-images are calculated in parallel.
+     * @param finer brightness of the smaller sub-images
+     * @param factor int number of smaller sub-images along each side of a sub-image
+     * @param charSize int size in pixels of a sub-image
+     * @param numCharsInRow int number of sub-images in a row
+     * @param numCharsInCol int number of sub-images in a column
+     * @return brightness of the sub-images
+     */
+    private static BrightnessPlane reduceCellBrightness(BrightnessPlane finer, int factor, int charSize,
+                                                        int numCharsInRow, int numCharsInCol) {
+        BrightnessPlane plane = new BrightnessPlane(numCharsInRow, numCharsInCol);
+        float[] cellBrightness = plane.getBrightness();
+        double[] cellSums = plane.getSums();
+        double[] finerSums = finer.getSums();
+        int finerCharsInRow = finer.getNumCharsInRow();
+        // pixel sums are reduced rather than brightness, so the result is the same as a sweep over the pixels
+        double scale = 1.0 / (255.0 * charSize * charSize);
+        IntStream.range(0, numCharsInCol).parallel().forEach(i -> {
+            for (int y = i * factor; y < (i + 1) * factor; y++) {
+                for (int x = 0; x < numCharsInRow * factor; x++) {
+                    cellSums[i * numCharsInRow + x / factor] += finerSums[y * finerCharsInRow + x];
+                }
+            }
+            for (int j = 0; j < numCharsInRow; j++) {
+                cellBrightness[i * numCharsInRow + j] = (float) (cellSums[i * numCharsInRow + j] * scale);
+            }
+        });
+        // the hash of the finer plane is the hash of these sub-images only if they cover the same pixels
+        if (finer.hasContentHash() && numCharsInRow * factor == finerCharsInRow &&
+                numCharsInCol * factor == finer.getNumCharsInCol()) {
+            plane.setContentHash(finer.getContentHash());
+        }
+        return plane;
+    }
+
+    /**
+     * Calculates the brightness of every sub-image in a single sweep over the rows of pixels, hashing the
+     * pixels on the way. Rows of sub-images are calculated in parallel, and their hashes are combined in
+     * order at the end.
+     * @param charSize int size in pixels of a sub-image
+     * @param numCharsInRow int number of sub-images in a row
+     * @param numCharsInCol int number of sub-images in a column
+     * @return brightness of the sub-images
+     */
+    private BrightnessPlane getCellBrightness(int charSize, int numCharsInRow, int numCharsInCol) {
+        BrightnessPlane plane = new BrightnessPlane(numCharsInRow, numCharsInCol);
+        long[] rowHashes = new long[numCharsInCol]; // hash of the pixels of every row of sub-images
+        float[] cellBrightness = plane.getBrightness();
+        double[] cellSums = plane.getSums();
+        double scale = 1.0 / (255.0 * charSize * charSize);
+        IntStream.range(0, numCharsInCol).parallel().forEach(i -> {
+            long hash = 0;
+            for (int y = i * charSize; y < (i + 1) * charSize; y++) {
+                for (int x = 0; x < numCharsInRow * charSize; x++) {
+                    double grey = img.getGreyPixel(x, y);
+                    cellSums[i * numCharsInRow + x / charSize] += grey;
+                    hash = hash * HASH_MULTIPLIER + mix(Double.doubleToLongBits(grey));
+                }
+            }
+            rowHashes[i] = hash;
+            for (int j = 0; j < numCharsInRow; j++) {
+                cellBrightness[i * numCharsInRow + j] = (float) (cellSums[i * numCharsInRow + j] * scale);
+            }
+        });
+        // content hash over the dimensions of the image and the pixels, in order. Every row hash is shifted
+        // past the pixels of the rows after it, so the hash is the same for any size of sub-images covering
+        // the same pixels.
+        long rowShift = power(HASH_MULTIPLIER, (long) charSize * charSize * numCharsInRow);
+        long contentHash = (long) img.getWidth() * HASH_MULTIPLIER + img.getHeight();
+        for (long rowHash : rowHashes) {
+            contentHash = contentHash * rowShift + rowHash;
+        }
+        plane.setContentHash(contentHash);
+        return plane;
+    }
+
+    /**
+     * Mixes the bits of a value, so that every bit of it affects every bit of the result. The bits of an
+     * integer grey brightness are all in the top of its double, and multiplying would carry them only
+     * further up, leaving the low bits of the hash the same for every image.
+     * @param value long value to mix
+     * @return mixed value, the finalizer of MurmurHash3
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    /**
+     * Raises a number to a power, wrapping around like the multiplications of a hash
+     * @param base long number to raise
+     * @param exponent long non-negative power
+     * @return base to the power of exponent, modulo 2^64
+     */
+    private static long power(long base, long exponent) {
+        long result = 1;
+        for (; exponent > 0; exponent >>= 1) {
+            if ((exponent & 1) != 0) {
+                result *= base;
+            }
+            base *= base;
+        }
+        return result;
+    }
+
+    /**
+     * Matches every sub-image with the char most similar in brightness
+     * @param cellBrightness brightness of the sub-images, row after row
      * @param charSet Array of Characters to choose from
-     * @param charBrightness List of the brightness of the chars
-     * @param imageBrightness double of the image brightness
-     * @return char most similar in brightness to the brightness given
+     * @param charBrightness brightness of the chars
+     * @param ascii Array of arrays to fill with the chars
      */
-    private static char getCharByBrightness(Character[] charSet,
-                                            List<Double> charBrightness,
-                                            double imageBrightness) {
-        List<Double> temp = new ArrayList<>(charBrightness);
-        // changes char brightness to absolute value of difference between image and char brightness
-        temp.replaceAll(x-> Math.abs(x-imageBrightness));
-        return charSet[temp.indexOf(Collections.min(temp))];
+    private static void nearest(float[] cellBrightness, Character[] charSet, float[] charBrightness,
+                                char[][] ascii) {
+        IntStream.range(0, ascii.length).parallel().forEach(i -> {
+            int numCharsInRow = ascii[i].length;
+            for (int j = 0; j < numCharsInRow; j++) {
+                ascii[i][j] = charSet[getCharByBrightness(charBrightness, cellBrightness[i*numCharsInRow + j])];
+            }
+        });
     }
 
     /**
-     * Calculates the brightness of the image given
-     * @param image Image to calculate on
-     * @param index int representing index of image
-     * @param subImageBrightnessMap map between image index and brightness
-     * @return double brightness of image
+     * Matches the sub-images with chars using Floyd-Steinberg error diffusion. Only the error of the
+     * current row and the row below it is kept, in buffers reused between renders.
+     * @param cellBrightness brightness of the sub-images, row after row
+     * @param charSet Array of Characters to choose from
+     * @param charBrightness brightness of the chars
+     * @param ascii Array of arrays to fill with the chars
      */
-    private static double getImageBrightness(Image image,
-                                             int index,
-                                             Map<Integer, Double> subImageBrightnessMap) {
-        // return brightness if available in map
-        if (subImageBrightnessMap.containsKey(index)){
-            return subImageBrightnessMap.get(index);
+    private static void floydSteinberg(float[] cellBrightness, Character[] charSet, float[] charBrightness,
+                                       char[][] ascii) {
+        int numCharsInRow = ascii.length == 0 ? 0 : ascii[0].length;
+        // errors are shifted by one so the neighbours of the edges need no checks
+        Scratch buffers = scratch.get();
+        if (buffers.rowError.length < numCharsInRow + 2) {
+            buffers.rowError = new float[numCharsInRow + 2];
+            buffers.nextRowError = new float[numCharsInRow + 2];
         }
-        double imageBrightness = 0;
-        // calculate brightness
-        for (Color pixel: image.pixels()) {
-            imageBrightness += getGreyPixel(pixel);
+        float[] rowError = buffers.rowError;
+        float[] nextRowError = buffers.nextRowError;
+        Arrays.fill(rowError, 0, numCharsInRow + 2, 0);
+        Arrays.fill(nextRowError, 0, numCharsInRow + 2, 0);
+        for (int i = 0; i < ascii.length; i++) {
+            for (int j = 0; j < numCharsInRow; j++) {
+                float brightness = cellBrightness[i*numCharsInRow + j] + rowError[j + 1];
+                int index = getCharByBrightness(charBrightness, brightness);
+                ascii[i][j] = charSet[index];
+                float error = brightness - charBrightness[index];
+                rowError[j + 2] += error * 7 / 16;
+                nextRowError[j] += error * 3 / 16;
+                nextRowError[j + 1] += error * 5 / 16;
+                nextRowError[j + 2] += error / 16;
+            }
+            float[] temp = rowError;
+            rowError = nextRowError;
+            nextRowError = temp;
+            Arrays.fill(nextRowError, 0, numCharsInRow + 2, 0);
         }
-        imageBrightness /= (255*image.getWidth()*image.getHeight());
-        subImageBrightnessMap.put(index, imageBrightness);
-        return imageBrightness;
     }
 
     /**
-     * Calculates Color to grey pixel brightness
-     * @param pixel Color to calculate
-     * @return grey pixel brightness
+     * Matches the sub-images with chars using ordered dithering. Every sub-image is matched with one of
+     * the two chars closest to it in brightness, according to its place in the Bayer matrix.
+     * @param cellBrightness brightness of the sub-images, row after row
+     * @param charSet Array of Characters to choose from
+     * @param charBrightness brightness of the chars
+     * @param ascii Array of arrays to fill with the chars
      */
-    private static double getGreyPixel(Color pixel) {
-        return pixel.getRed() * 0.2126 + pixel.getGreen() * 0.7152 +
-                pixel.getBlue() * 0.0722;
+    private static void orderedDither(float[] cellBrightness, Character[] charSet, float[] charBrightness,
+                                      char[][] ascii) {
+        IntStream.range(0, ascii.length).parallel().forEach(i -> {
+            int numCharsInRow = ascii[i].length;
+            int[] bayerRow = BAYER_MATRIX[i % BAYER_MATRIX.length];
+            for (int j = 0; j < numCharsInRow; j++) {
+                float brightness = cellBrightness[i*numCharsInRow + j];
+                float threshold = (bayerRow[j % bayerRow.length] + 0.5f) / BAYER_LEVELS;
+                int darker = -1, brighter = -1; // closest chars below and above the brightness
+                for (int k = 0; k < charBrightness.length; k++) {
+                    if (charBrightness[k] <= brightness &&
+                            (darker == -1 || charBrightness[k] > charBrightness[darker])) {
+                        darker = k;
+                    }
+                    if (charBrightness[k] >= brightness &&
+                            (brighter == -1 || charBrightness[k] < charBrightness[brighter])) {
+                        brighter = k;
+                    }
+                }
+                if (darker == -1 || brighter == -1 || darker == brighter) {
+                    ascii[i][j] = charSet[darker == -1 ? brighter : darker];
+                    continue;
+                }
+                float position = (brightness - charBrightness[darker]) /
+                        (charBrightness[brighter] - charBrightness[darker]);
+                ascii[i][j] = charSet[position > threshold ? brighter : darker];
+            }
+        });
     }
 
     /**
-     * Fills list with char brightness according to index of char in charSet
+     * Selects the char according to the brightness of the image
+     * @param charBrightness brightness of the chars
+     * @param imageBrightness brightness of the image
+     * @return index of the char most similar in brightness to the brightness given
+     */
+    private static int getCharByBrightness(float[] charBrightness, float imageBrightness) {
+        int best = 0;
+        float bestDistance = Math.abs(charBrightness[0] - imageBrightness);
+        for (int k = 1; k < charBrightness.length; k++) {
+            float distance = Math.abs(charBrightness[k] - imageBrightness);
+            if (distance < bestDistance) {
+                best = k;
+                bestDistance = distance;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Fills array with char brightness according to index of char in charSet. The array is reused
+     * while the same chars are given on the same thread.
      * @param charSet Array of Characters to calculate brightness for
-     * @return List of Character brightness
+     * @return Array of normalized Character brightness
      */
-    private List<Double> getCharBrightness(Character[] charSet) {
+    private float[] getCharBrightness(Character[] charSet) {
+        Scratch buffers = scratch.get();
+        if (Arrays.equals(buffers.charSet, charSet)) {
+            return buffers.charBrightness;
+        }
         List<Double> charValue = new ArrayList<>(charSet.length);
         for (Character character : charSet) {
             // if character brightness is saved in static map
@@ -136,9 +534,14 @@ public class BrightnessImgCharMatcher {
                 charBrightnessMap.put(character, charBrightness);
             }
         }
-        Double min = Collections.min(charValue);
-        Double max = Collections.max(charValue);
-        charValue.replaceAll(x -> (x - min) / (max - min)); // normalize char brightnesses
-        return charValue;
+        double min = Collections.min(charValue);
+        double max = Collections.max(charValue);
+        float[] normalized = new float[charValue.size()];
+        for (int k = 0; k < normalized.length; k++) {
+            normalized[k] = (float) ((charValue.get(k) - min) / (max - min)); // normalize char brightnesses
+        }
+        buffers.charSet = charSet.clone();
+        buffers.charBrightness = normalized;
+        return normalized;
     }
 }
@@ -0,0 +1,243 @@
+package ascii_art.img_to_char;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * The brightness of the sub-images of an image in a single resolution, row after row, together with a
+ * histogram of the brightness in every tile of sub-images. The histograms are used to normalize the
+ * contrast of the brightness, and are filled only once a normalization is first asked for, so renders
+ * without one never pay for them.
+ */
+class BrightnessPlane {
+    private static final int TILE_SIZE = 8; // sub-images along each side of a tile
+    private static final int BINS = 64; // bins of every histogram
+    private static final float CLIP_LIMIT = 4f; // greatest count of a bin, relative to the mean count
+    private final float[] brightness; // brightness of the sub-images, row after row
+    private final double[] sums; // sums of the grey values of the pixels of the sub-images, row after row
+    private final int numCharsInRow; // number of sub-images in a row
+    private final int numCharsInCol; // number of sub-images in a column
+    private final int tileCols; // number of tiles in a row
+    private final int tileRows; // number of tiles in a column
+    private int[][] tileHistograms; // histogram of every tile, row after row, null until first needed
+    private boolean hasContentHash; // whether the pixels covered by the sub-images were hashed
+    private long contentHash; // hash of the pixels covered by the sub-images, if hashed
+    // brightness after every normalization calculated so far
+    private final Map<Normalization, float[]> normalizedBrightness = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for an empty plane
+     * @param numCharsInRow int number of sub-images in a row
+     * @param numCharsInCol int number of sub-images in a column
+     */
+    BrightnessPlane(int numCharsInRow, int numCharsInCol) {
+        this.numCharsInRow = numCharsInRow;
+        this.numCharsInCol = numCharsInCol;
+        this.brightness = new float[numCharsInRow * numCharsInCol];
+        this.sums = new double[numCharsInRow * numCharsInCol];
+        this.tileCols = (numCharsInRow + TILE_SIZE - 1) / TILE_SIZE;
+        this.tileRows = (numCharsInCol + TILE_SIZE - 1) / TILE_SIZE;
+    }
+
+    /**
+     * @return brightness of the sub-images, row after row, to be filled by the caller
+     */
+    float[] getBrightness() {
+        return brightness;
+    }
+
+    /**
+     * @return sums of the grey values of the pixels of the sub-images, row after row, to be filled by
+     * the caller. Coarser planes are reduced from them.
+     */
+    double[] getSums() {
+        return sums;
+    }
+
+    /**
+     * @return whether the pixels covered by the sub-images were hashed when the plane was calculated
+     */
+    boolean hasContentHash() {
+        return hasContentHash;
+    }
+
+    /**
+     * @return hash of the grey brightness of every pixel covered by the sub-images, if hashed
+     */
+    long getContentHash() {
+        return contentHash;
+    }
+
+    /**
+     * Sets the hash of the pixels covered by the sub-images, once calculated
+     * @param contentHash long hash of the grey brightness of every pixel covered by the sub-images
+     */
+    void setContentHash(long contentHash) {
+        this.contentHash = contentHash;
+        this.hasContentHash = true;
+    }
+
+    /**
+     * @return number of sub-images in a row
+     */
+    int getNumCharsInRow() {
+        return numCharsInRow;
+    }
+
+    /**
+     * @return number of sub-images in a column
+     */
+    int getNumCharsInCol() {
+        return numCharsInCol;
+    }
+
+    /**
+     * Gets the histograms of the tiles, filling them from the brightness on the first call. Rows of tiles
+     * are filled in parallel, each by a single task.
+     * @return histogram of every tile, row after row
+     */
+    private synchronized int[][] getTileHistograms() {
+        if (tileHistograms == null) {
+            int[][] histograms = new int[tileCols * tileRows][BINS];
+            IntStream.range(0, tileRows).parallel().forEach(t -> {
+                for (int i = t * TILE_SIZE; i < Math.min((t + 1) * TILE_SIZE, numCharsInCol); i++) {
+                    for (int j = 0; j < numCharsInRow; j++) {
+                        histograms[t * tileCols + j / TILE_SIZE][bin(brightness[i * numCharsInRow + j])]++;
+                    }
+                }
+            });
+            tileHistograms = histograms;
+        }
+        return tileHistograms;
+    }
+
+    /**
+     * Gets the brightness after a normalization. Normalized brightness is calculated once and kept.
+     * @param normalization Normalization to apply
+     * @return brightness of the sub-images, row after row
+     */
+    float[] getBrightness(Normalization normalization) {
+        if (normalization == Normalization.NONE) {
+            return brightness;
+        }
+        return normalizedBrightness.computeIfAbsent(normalization, key -> key == Normalization.GLOBAL ?
+                equalizeGlobal() : equalizeLocal());
+    }
+
+    /**
+     * Equalizes the brightness by the histogram of the whole image. Rows of tiles are equalized in
+     * parallel.
+     * @return equalized brightness of the sub-images, row after row
+     */
+    private float[] equalizeGlobal() {
+        int[] histogram = new int[BINS];
+        for (int[] tileHistogram : getTileHistograms()) {
+            for (int b = 0; b < BINS; b++) {
+                histogram[b] += tileHistogram[b];
+            }
+        }
+        float[] mapping = getMapping(histogram);
+        float[] equalized = new float[brightness.length];
+        IntStream.range(0, tileRows).parallel().forEach(t -> {
+            for (int i = t * TILE_SIZE; i < Math.min((t + 1) * TILE_SIZE, numCharsInCol); i++) {
+                for (int j = 0; j < numCharsInRow; j++) {
+                    equalized[i * numCharsInRow + j] = map(mapping, brightness[i * numCharsInRow + j]);
+                }
+            }
+        });
+        return equalized;
+    }
+
+    /**
+     * Equalizes the brightness by the histograms of the tiles. Every sub-image is mapped by the four
+     * tiles whose centers are closest to it, weighted by its distance from them. Rows of tiles are
+     * equalized in parallel.
+     * @return equalized brightness of the sub-images, row after row
+     */
+    private float[] equalizeLocal() {
+        int[][] histograms = getTileHistograms();
+        float[][] mappings = new float[histograms.length][];
+        IntStream.range(0, histograms.length).parallel().forEach(
+                tile -> mappings[tile] = getMapping(histograms[tile]));
+        float[] equalized = new float[brightness.length];
+        IntStream.range(0, tileRows).parallel().forEach(t -> {
+            for (int i = t * TILE_SIZE; i < Math.min((t + 1) * TILE_SIZE, numCharsInCol); i++) {
+                // tiles above and below the sub-image, and the weight of the one below
+                float tileY = (i + 0.5f) / TILE_SIZE - 0.5f;
+                int top = Math.max(0, Math.min((int) Math.floor(tileY), tileRows - 1));
+                int bottom = Math.min(top + 1, tileRows - 1);
+                float weightY = Math.max(0, Math.min(tileY - top, 1));
+                for (int j = 0; j < numCharsInRow; j++) {
+                    // tiles left and right of the sub-image, and the weight of the one on the right
+                    float tileX = (j + 0.5f) / TILE_SIZE - 0.5f;
+                    int left = Math.max(0, Math.min((int) Math.floor(tileX), tileCols - 1));
+                    int right = Math.min(left + 1, tileCols - 1);
+                    float weightX = Math.max(0, Math.min(tileX - left, 1));
+                    float value = brightness[i * numCharsInRow + j];
+                    float topValue = map(mappings[top * tileCols + left], value) * (1 - weightX) +
+                            map(mappings[top * tileCols + right], value) * weightX;
+                    float bottomValue = map(mappings[bottom * tileCols + left], value) * (1 - weightX) +
+                            map(mappings[bottom * tileCols + right], value) * weightX;
+                    equalized[i * numCharsInRow + j] = topValue * (1 - weightY) + bottomValue * weightY;
+                }
+            }
+        });
+        return equalized;
+    }
+
+    /**
+     * Calculates the equalizing mapping of a histogram. Bins are clipped to the clip limit and their excess
+     * is spread evenly over all bins, so that no range of brightness is stretched too far.
+     * @param histogram int counts of every bin
+     * @return equalized brightness of the center of every bin
+     */
+    private static float[] getMapping(int[] histogram) {
+        float total = 0;
+        for (int count : histogram) {
+            total += count;
+        }
+        float[] mapping = new float[BINS];
+        if (total == 0) {
+            for (int b = 0; b < BINS; b++) {
+                mapping[b] = (b + 0.5f) / BINS;
+            }
+            return mapping;
+        }
+        float clip = Math.max(1, CLIP_LIMIT * total / BINS);
+        float excess = 0;
+        for (int count : histogram) {
+            excess += Math.max(0, count - clip);
+        }
+        float spread = excess / BINS;
+        float cumulative = 0;
+        for (int b = 0; b < BINS; b++) {
+            float count = Math.min(histogram[b], clip) + spread;
+            mapping[b] = (cumulative + count / 2) / total;
+            cumulative += count;
+        }
+        return mapping;
+    }
+
+    /**
+     * Maps brightness by a mapping, interpolating between the centers of the bins around it
+     * @param mapping equalized brightness of the center of every bin
+     * @param value brightness to map
+     * @return mapped brightness
+     */
+    private static float map(float[] mapping, float value) {
+        float position = Math.max(0, Math.min(value * BINS - 0.5f, BINS - 1));
+        int lower = (int) position;
+        int upper = Math.min(lower + 1, BINS - 1);
+        float weight = position - lower;
+        return mapping[lower] * (1 - weight) + mapping[upper] * weight;
+    }
+
+    /**
+     * @param value brightness between 0 and 1
+     * @return bin of the brightness
+     */
+    private static int bin(float value) {
+        return Math.max(0, Math.min((int) (value * BINS), BINS - 1));
+    }
+}
@@ -0,0 +1,21 @@
+package ascii_art.img_to_char;
+
+/**
+ * Ways of spreading the brightness error left over when a sub-image is matched with a char
+ */
+public enum Dither {
+    /**
+     * Every sub-image is matched with the char most similar in brightness
+     */
+    NONE,
+    /**
+     * Floyd-Steinberg error diffusion. The error of every sub-image is pushed to its right and lower
+     * neighbours, so rows are matched one after the other.
+     */
+    FLOYD_STEINBERG,
+    /**
+     * Ordered dithering with a 4x4 Bayer matrix. Every sub-image is matched on its own, so rows are
+     * matched in parallel.
+     */
+    ORDERED
+}
@@ -0,0 +1,54 @@
+package ascii_art.img_to_char;
+
+/**
+ * Fingerprint of an image. The average hash is a cheap perceptual hash that stays the same when an image
+ * is re-encoded, and the content hash changes with the grey brightness of any pixel. Since chars are
+ * matched only by brightness, images with the same content hash are rendered to the same chars.
+ */
+public final class ImageFingerprint {
+    private final long averageHash; // one bit for every sub-image of an 8x8 grid, set if brighter than mean
+    private final long contentHash; // hash of the grey brightness of every pixel
+
+    /**
+     * Constructor for a fingerprint
+     * @param averageHash long perceptual hash of the image
+     * @param contentHash long hash of the grey brightness of every pixel
+     */
+    public ImageFingerprint(long averageHash, long contentHash) {
+        this.averageHash = averageHash;
+        this.contentHash = contentHash;
+    }
+
+    /**
+     * @return long perceptual hash of the image
+     */
+    public long getAverageHash() {
+        return averageHash;
+    }
+
+    /**
+     * @return long hash of the grey brightness of every pixel
+     */
+    public long getContentHash() {
+        return contentHash;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof ImageFingerprint)) {
+            return false;
+        }
+        ImageFingerprint fingerprint = (ImageFingerprint) other;
+        return averageHash == fingerprint.averageHash && contentHash == fingerprint.contentHash;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(averageHash * 31 + contentHash);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%016x:%016x", averageHash, contentHash);
+    }
+}
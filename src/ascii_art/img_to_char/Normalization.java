@@ -0,0 +1,20 @@
+package ascii_art.img_to_char;
+
+/**
+ * Ways of stretching the contrast of the brightness of the sub-images before they are matched with chars
+ */
+public enum Normalization {
+    /**
+     * Brightness is matched as it is
+     */
+    NONE,
+    /**
+     * Brightness is equalized by the histogram of the whole image
+     */
+    GLOBAL,
+    /**
+     * Brightness is equalized by the histograms of tiles of 8x8 sub-images, blending the tiles around
+     * every sub-image, with the contrast every tile may gain limited (CLAHE)
+     */
+    LOCAL
+}
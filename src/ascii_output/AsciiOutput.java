@@ -10,4 +10,16 @@ public interface AsciiOutput {
      * Output the specified 2D array of chars
      */
     void output(char[][] chars);
+
+    /**
+     * Estimates the number of bytes written when outputting an array of chars of the given dimensions.
+     * By default every char takes a byte and every row ends with a new line.
+     * @param rows int number of rows of chars
+     * @param cols int number of chars in a row
+     * @param charSetSize int number of different chars that may be used
+     * @return estimated number of bytes written
+     */
+    default long estimateSize(int rows, int cols, int charSetSize) {
+        return (long) rows * (cols + 1);
+    }
 }
@@ -0,0 +1,133 @@
+package ascii_output;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+/**
+ * Output a 2D array of chars to a compact binary file. The file holds a header with the dimensions and
+ * the palette of chars used, an index of the offset of every row in the file, and then the rows, in
+ * which every char is written as its index in the palette packed to as few bits as the palette needs.
+ * Rows start on a byte boundary, so any range of rows can be read without decoding the rest, see
+ * {@link BinaryAsciiReader}.
+ */
+public class BinaryAsciiOutput implements AsciiOutput {
+    static final int MAGIC = 0x41534342; // "ASCB" at the start of the file
+    static final int VERSION = 1; // version of the file format
+    private static final int NO_INDEX = -1; // marks chars not in the palette
+
+    private final String filename;
+
+    public BinaryAsciiOutput(String filename) {
+        this.filename = filename;
+    }
+
+    @Override
+    public void output(char[][] chars) {
+        int rows = chars.length;
+        int cols = rows == 0 ? 0 : chars[0].length;
+        char[] palette = getPalette(chars);
+        int bitsPerChar = bitsPerChar(palette.length);
+        int bytesPerRow = bytesPerRow(cols, bitsPerChar);
+        // index of every char in the palette
+        int[] paletteIndex = new int[Character.MAX_VALUE + 1];
+        Arrays.fill(paletteIndex, NO_INDEX);
+        for (int i = 0; i < palette.length; i++) {
+            paletteIndex[palette[i]] = i;
+        }
+        try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(filename)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(rows);
+            out.writeInt(cols);
+            out.writeShort(palette.length);
+            for (char c : palette) {
+                out.writeChar(c);
+            }
+            out.writeByte(bitsPerChar);
+            // rows follow the header and the index
+            long rowOffset = headerSize(palette.length) + (long) rows * Long.BYTES;
+            for (int y = 0; y < rows; y++) {
+                out.writeLong(rowOffset + (long) y * bytesPerRow);
+            }
+            byte[] row = new byte[bytesPerRow];
+            for (int y = 0; y < rows; y++) {
+                Arrays.fill(row, (byte) 0);
+                for (int x = 0; x < cols; x++) {
+                    // indexes are packed from the most significant bit of every byte
+                    int index = paletteIndex[chars[y][x]];
+                    for (int bit = 0; bit < bitsPerChar; bit++) {
+                        if ((index >>> (bitsPerChar - 1 - bit) & 1) != 0) {
+                            int position = x * bitsPerChar + bit;
+                            row[position >>> 3] |= 0x80 >>> (position & 7);
+                        }
+                    }
+                }
+                out.write(row);
+            }
+        } catch(IOException e) {
+            Logger.getGlobal().severe(String.format("Failed to write to \"%s\"", filename));
+        }
+    }
+
+    @Override
+    public long estimateSize(int rows, int cols, int charSetSize) {
+        return headerSize(charSetSize) + (long) rows * Long.BYTES +
+                (long) rows * bytesPerRow(cols, bitsPerChar(charSetSize));
+    }
+
+    /**
+     * @param chars array of arrays of chars to output
+     * @return sorted array of the different chars used
+     */
+    private static char[] getPalette(char[][] chars) {
+        boolean[] used = new boolean[Character.MAX_VALUE + 1];
+        int size = 0;
+        for (char[] row : chars) {
+            for (char c : row) {
+                if (!used[c]) {
+                    used[c] = true;
+                    size++;
+                }
+            }
+        }
+        char[] palette = new char[size];
+        for (int c = 0, i = 0; i < size; c++) {
+            if (used[c]) {
+                palette[i++] = (char) c;
+            }
+        }
+        return palette;
+    }
+
+    /**
+     * @param paletteSize int number of chars in the palette
+     * @return number of bits needed to write an index in the palette
+     */
+    static int bitsPerChar(int paletteSize) {
+        return paletteSize <= 1 ? 0 : Integer.SIZE - Integer.numberOfLeadingZeros(paletteSize - 1);
+    }
+
+    /**
+     * @param cols int number of chars in a row
+     * @param bitsPerChar int number of bits of every char
+     * @return number of bytes a row takes in the file
+     */
+    static int bytesPerRow(int cols, int bitsPerChar) {
+        return (int) (((long) cols * bitsPerChar + 7) / 8);
+    }
+
+    /**
+     * @param paletteSize int number of chars in the palette
+     * @return number of bytes of the header, up to the row index
+     */
+    static long headerSize(int paletteSize) {
+        // magic, version, rows, cols, palette size, palette, bits per char
+        return Integer.BYTES + 1 + Integer.BYTES + Integer.BYTES + Short.BYTES +
+                (long) paletteSize * Character.BYTES + 1;
+    }
+}
@@ -0,0 +1,128 @@
+package ascii_output;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+
+/**
+ * Reads files written by {@link BinaryAsciiOutput} and writes them, or ranges of their rows, to other
+ * outputs. Only the rows requested are read from the file.
+ */
+public class BinaryAsciiReader {
+    private final String filename; // file to read from
+    private final int rows; // number of rows in file
+    private final int cols; // number of chars in a row
+    private final char[] palette; // chars by their index
+    private final int bitsPerChar; // number of bits of every char
+    private final long[] rowOffsets; // offset of every row in the file
+
+    /**
+     * Constructor reading the header and the row index of a file
+     * @param filename a path to a file written by BinaryAsciiOutput
+     * @throws IOException if the file could not be read or is not in the right format
+     */
+    public BinaryAsciiReader(String filename) throws IOException {
+        this.filename = filename;
+        try (RandomAccessFile file = new RandomAccessFile(filename, "r")) {
+            DataInputStream in = new DataInputStream(Channels.newInputStream(file.getChannel()));
+            if (in.readInt() != BinaryAsciiOutput.MAGIC || in.readByte() != BinaryAsciiOutput.VERSION) {
+                throw new IOException(String.format("\"%s\" is not a binary ascii file", filename));
+            }
+            rows = in.readInt();
+            cols = in.readInt();
+            palette = new char[in.readUnsignedShort()];
+            for (int i = 0; i < palette.length; i++) {
+                palette[i] = in.readChar();
+            }
+            bitsPerChar = in.readUnsignedByte();
+            if (rows < 0 || cols < 0 || bitsPerChar != BinaryAsciiOutput.bitsPerChar(palette.length)) {
+                throw new IOException(String.format("Malformed header in \"%s\"", filename));
+            }
+            rowOffsets = new long[rows];
+            for (int y = 0; y < rows; y++) {
+                rowOffsets[y] = in.readLong();
+            }
+        }
+    }
+
+    /**
+     * @return number of rows in file
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * @return number of chars in a row
+     */
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Reads a range of rows from the file
+     * @param from int index of first row, inclusive
+     * @param to int index of last row, exclusive
+     * @return array of arrays of the chars in the rows
+     * @throws IOException if the file could not be read
+     */
+    public char[][] readRows(int from, int to) throws IOException {
+        if (from < 0 || to > rows || from > to) {
+            throw new IndexOutOfBoundsException(String.format("Rows %d-%d out of %d", from, to, rows));
+        }
+        char[][] chars = new char[to - from][cols];
+        ByteBuffer row = ByteBuffer.allocate(BinaryAsciiOutput.bytesPerRow(cols, bitsPerChar));
+        try (RandomAccessFile file = new RandomAccessFile(filename, "r")) {
+            FileChannel channel = file.getChannel();
+            for (int y = from; y < to; y++) {
+                row.clear();
+                while (row.hasRemaining()) {
+                    if (channel.read(row, rowOffsets[y] + row.position()) < 0) {
+                        throw new IOException(String.format("Truncated file \"%s\"", filename));
+                    }
+                }
+                decodeRow(row.array(), chars[y - from]);
+            }
+        }
+        return chars;
+    }
+
+    /**
+     * Writes all rows of the file to an output
+     * @param output AsciiOutput to write to
+     * @throws IOException if the file could not be read
+     */
+    public void writeTo(AsciiOutput output) throws IOException {
+        writeTo(output, 0, rows);
+    }
+
+    /**
+     * Writes a range of rows of the file to an output
+     * @param output AsciiOutput to write to
+     * @param from int index of first row, inclusive
+     * @param to int index of last row, exclusive
+     * @throws IOException if the file could not be read
+     */
+    public void writeTo(AsciiOutput output, int from, int to) throws IOException {
+        output.output(readRows(from, to));
+    }
+
+    /**
+     * Unpacks the palette indexes of a row into chars
+     * @param row bytes of the row in the file
+     * @param chars array to fill with the chars of the row
+     */
+    private void decodeRow(byte[] row, char[] chars) {
+        for (int x = 0; x < chars.length; x++) {
+            int index = 0;
+            for (int bit = 0; bit < bitsPerChar; bit++) {
+                int position = x * bitsPerChar + bit;
+                index = index << 1 | (row[position >>> 3] >>> (7 - (position & 7)) & 1);
+            }
+            chars[x] = palette[index];
+        }
+    }
+}
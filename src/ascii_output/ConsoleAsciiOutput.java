@@ -1,16 +1,33 @@
 package ascii_output;
 
+import java.io.PrintWriter;
+
 /**
  * Output a 2D array of chars to the console.
  * @author Dan Nirel
  */public class ConsoleAsciiOutput implements AsciiOutput{
+    private char[] line = new char[0]; // row being printed, reused between rows
+
     @Override
     public void output(char[][] chars) {
+        PrintWriter writer = new PrintWriter(System.out);
         for (int y = 0; y < chars.length ; y++) {
+            // every char is followed by a space
+            if (line.length < chars[y].length * 2) {
+                line = new char[chars[y].length * 2];
+            }
             for (int x = 0; x < chars[y].length; x++) {
-                System.out.print(chars[y][x] + " ");
+                line[x * 2] = chars[y][x];
+                line[x * 2 + 1] = ' ';
             }
-            System.out.println();
+            writer.write(line, 0, chars[y].length * 2);
+            writer.println();
         }
+        writer.flush();
+    }
+
+    @Override
+    public long estimateSize(int rows, int cols, int charSetSize) {
+        return (long) rows * (cols * 2 + 1);
     }
 }
@@ -12,6 +12,7 @@ import java.util.logging.Logger;
 public class HtmlAsciiOutput implements AsciiOutput {
     private static final double BASE_LINE_SPACING = 0.8;
     private static final double BASE_FONT_SIZE = 150.0;
+    private static final int MARKUP_SIZE = 300; // approximate bytes of markup around the chars
 
     private final String fontName;
     private final String filename;
@@ -41,14 +42,12 @@ public class HtmlAsciiOutput implements AsciiOutput {
 
             for(int y = 0 ; y < chars.length ; y++) {
                 for (int x = 0; x < chars[y].length ; x++) {
-                    String htmlRep;
                     switch(chars[y][x]) {
-                        case '<': htmlRep = "&lt;";  break;
-                        case '>': htmlRep = "&gt;";  break;
-                        case '&': htmlRep = "&amp;"; break;
-                        default:  htmlRep = String.valueOf(chars[y][x]);
+                        case '<': writer.write("&lt;");  break;
+                        case '>': writer.write("&gt;");  break;
+                        case '&': writer.write("&amp;"); break;
+                        default:  writer.write(chars[y][x]);
                     }
-                    writer.write(htmlRep);
                 }
                 writer.newLine();
             }
@@ -60,4 +59,9 @@ public class HtmlAsciiOutput implements AsciiOutput {
             Logger.getGlobal().severe(String.format("Failed to write to \"%s\"", filename));
         }
     }
+
+    @Override
+    public long estimateSize(int rows, int cols, int charSetSize) {
+        return MARKUP_SIZE + (long) rows * (cols + 1);
+    }
 }
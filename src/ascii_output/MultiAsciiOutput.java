@@ -0,0 +1,41 @@
+package ascii_output;
+
+import java.util.List;
+
+/**
+ * Output a 2D array of chars to several outputs together.
+ */
+public class MultiAsciiOutput implements AsciiOutput {
+    private final List<AsciiOutput> outputs; // outputs to write to, in order
+
+    /**
+     * Constructor for writing to several outputs
+     * @param outputs AsciiOutputs to write to, in the order given
+     */
+    public MultiAsciiOutput(AsciiOutput... outputs) {
+        this.outputs = List.of(outputs);
+    }
+
+    /**
+     * Outputs the chars to every one of the outputs
+     * @param chars array of arrays of chars to output
+     */
+    @Override
+    public void output(char[][] chars) {
+        for (AsciiOutput output : outputs) {
+            output.output(chars);
+        }
+    }
+
+    /**
+     * @return total of the estimates of every one of the outputs
+     */
+    @Override
+    public long estimateSize(int rows, int cols, int charSetSize) {
+        long size = 0;
+        for (AsciiOutput output : outputs) {
+            size += output.estimateSize(rows, cols, charSetSize);
+        }
+        return size;
+    }
+}
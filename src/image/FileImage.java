@@ -23,6 +23,9 @@ class FileImage implements Image {
      */
     public FileImage(String filename) throws IOException {
         java.awt.image.BufferedImage im = ImageIO.read(new File(filename));
+        if (im == null) {
+            throw new IOException(String.format("Unsupported image format in \"%s\"", filename));
+        }
         int origWidth = im.getWidth(), origHeight = im.getHeight();
         //im.getRGB(x, y)); getter for access to a specific RGB rates
 
@@ -99,4 +102,15 @@ class FileImage implements Image {
         }
         return new Color(pixelArray[y][x].getRGB());
     }
+
+    /**
+     * @param x column coordinate of pixel
+     * @param y row coordinate of pixel
+     * @return grey brightness of pixel, read without copying its Color
+     */
+    @Override
+    public double getGreyPixel(int x, int y) {
+        Color pixel = pixelArray[y][x];
+        return Image.getGreyPixel(pixel.getRed(), pixel.getGreen(), pixel.getBlue());
+    }
 }
@@ -2,6 +2,7 @@ package image;
 
 import java.awt.*;
 import java.io.IOException;
+import java.util.ServiceLoader;
 
 /**
  * Facade for the image module and an interface representing an image.
@@ -16,6 +17,29 @@ public interface Image {
      */
     Color getPixel(int x, int y);
 
+    /**
+     * Gets the grey brightness of the pixel at the given coordinates. Images that can read it without
+     * creating a Color, such as luminance-only images, should override this.
+     * @param x int x-axis pixel
+     * @param y int y-axis pixel
+     * @return double grey brightness of the pixel, between 0 and 255
+     */
+    default double getGreyPixel(int x, int y) {
+        Color pixel = getPixel(x, y);
+        return getGreyPixel(pixel.getRed(), pixel.getGreen(), pixel.getBlue());
+    }
+
+    /**
+     * Calculates the grey brightness of a color
+     * @param red int red component, between 0 and 255
+     * @param green int green component, between 0 and 255
+     * @param blue int blue component, between 0 and 255
+     * @return double grey brightness, between 0 and 255
+     */
+    static double getGreyPixel(int red, int green, int blue) {
+        return red * 0.2126 + green * 0.7152 + blue * 0.0722;
+    }
+
     /**
      * @return int width of Image
      */
@@ -29,11 +53,23 @@ public interface Image {
     /**
      * Open an image from file. Each dimensions of the returned image is guaranteed
      * to be a power of 2, but the dimensions may be different.
+     * The file is decoded by the first {@link ImageDecoder} found that accepts it and decodes it without
+     * failing, or with ImageIO if none does.
      * @param filename a path to an image file on disk
      * @return an object implementing Image if the operation was successful,
      * null otherwise
      */
     static Image fromFile(String filename) {
+        for (ImageDecoder decoder : ServiceLoader.load(ImageDecoder.class)) {
+            try {
+                if (decoder.canDecode(filename)) {
+                    return decoder.decode(filename);
+                }
+            } catch(IOException ioe) {
+                // a file accepted by mistake, such as a raw frame starting like a PNM file, is left to the
+                // following decoders
+            }
+        }
         try {
             return new FileImage(filename);
         } catch(IOException ioe) {
@@ -0,0 +1,27 @@
+package image;
+
+import java.io.IOException;
+
+/**
+ * Service interface for decoders of image files. Implementations are found with a
+ * {@link java.util.ServiceLoader}, and are listed in META-INF/services/image.ImageDecoder.
+ * Files that no decoder accepts are read with ImageIO.
+ */
+public interface ImageDecoder {
+    /**
+     * Checks whether the file can be decoded by this decoder
+     * @param filename a path to an image file on disk
+     * @return true if the file is in a format this decoder reads, false otherwise
+     * @throws IOException if the file could not be read
+     */
+    boolean canDecode(String filename) throws IOException;
+
+    /**
+     * Decodes an image file. Each dimensions of the returned image is guaranteed
+     * to be a power of 2, but the dimensions may be different.
+     * @param filename a path to an image file on disk
+     * @return an object implementing Image
+     * @throws IOException if the file could not be read or is malformed
+     */
+    Image decode(String filename) throws IOException;
+}
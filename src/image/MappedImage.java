@@ -0,0 +1,127 @@
+package image;
+
+import java.awt.*;
+import java.nio.ByteBuffer;
+
+/**
+ * An image whose pixels are read straight from a buffer of 8 bit samples, usually a file mapped to
+ * memory. Pixels are stored row after row, with one sample per pixel for luminance or three for RGB.
+ * The image is padded with a white border so that its dimensions are powers of 2.
+ */
+class MappedImage implements Image {
+    private static final int WHITE = 255; // sample of a white border pixel
+    private final ByteBuffer buffer; // buffer of pixel samples
+    private final int dataOffset; // index of the first sample in the buffer
+    private final int channels; // samples per pixel, 1 for luminance or 3 for RGB
+    private final int maxValue; // value of a sample at full intensity
+    private final int origWidth; // width of image in buffer
+    private final int origHeight; // height of image in buffer
+    private final int pixelArrayWidth; // width of padded image
+    private final int pixelArrayHeight; // height of padded image
+    private final int borderWidth; // width of white border on the left
+    private final int borderHeight; // height of white border on the top
+
+    /**
+     * Constructor for an image over a buffer of samples
+     * @param buffer ByteBuffer holding the samples, not copied
+     * @param dataOffset int index of the first sample in the buffer
+     * @param channels int samples per pixel, 1 for luminance or 3 for RGB
+     * @param maxValue int value of a sample at full intensity, no greater than 255
+     * @param origWidth int width of image in buffer
+     * @param origHeight int height of image in buffer
+     */
+    MappedImage(ByteBuffer buffer, int dataOffset, int channels, int maxValue, int origWidth, int origHeight) {
+        this.buffer = buffer;
+        this.dataOffset = dataOffset;
+        this.channels = channels;
+        this.maxValue = maxValue;
+        this.origWidth = origWidth;
+        this.origHeight = origHeight;
+        // 2^ceil(log2(orig))
+        pixelArrayWidth = (int) Math.pow(2, Math.ceil(Math.log(origWidth)/Math.log(2)));
+        pixelArrayHeight = (int) Math.pow(2, Math.ceil(Math.log(origHeight)/Math.log(2)));
+        borderWidth = (pixelArrayWidth - origWidth) / 2;
+        borderHeight = (pixelArrayHeight - origHeight) / 2;
+    }
+
+    /**
+     * @return width of padded image
+     */
+    @Override
+    public int getWidth() {
+        return pixelArrayWidth;
+    }
+
+    /**
+     * @return height of padded image
+     */
+    @Override
+    public int getHeight() {
+        return pixelArrayHeight;
+    }
+
+    /**
+     * @param x column coordinate of pixel
+     * @param y row coordinate of pixel
+     * @return Color of pixel
+     */
+    @Override
+    public Color getPixel(int x, int y) {
+        if (x >= pixelArrayWidth || y >= pixelArrayHeight){
+            return null;
+        }
+        int index = sampleIndex(x, y);
+        if (index < 0) {
+            return new Color(WHITE, WHITE, WHITE);
+        }
+        if (channels == 1) {
+            int grey = sample(index);
+            return new Color(grey, grey, grey);
+        }
+        return new Color(sample(index), sample(index + 1), sample(index + 2));
+    }
+
+    /**
+     * Reads the grey brightness of a pixel without creating a Color. Luminance samples are returned
+     * as they are.
+     * @param x column coordinate of pixel
+     * @param y row coordinate of pixel
+     * @return grey brightness of pixel, between 0 and 255
+     */
+    @Override
+    public double getGreyPixel(int x, int y) {
+        int index = sampleIndex(x, y);
+        // border pixels of RGB images are as bright as a white Color would be
+        if (index < 0) {
+            return channels == 1 ? WHITE : Image.getGreyPixel(WHITE, WHITE, WHITE);
+        }
+        if (channels == 1) {
+            return sample(index);
+        }
+        return Image.getGreyPixel(sample(index), sample(index + 1), sample(index + 2));
+    }
+
+    /**
+     * Finds the index in the buffer of the first sample of a pixel
+     * @param x column coordinate of pixel
+     * @param y row coordinate of pixel
+     * @return index of the first sample, or -1 if the pixel is in the white border
+     */
+    private int sampleIndex(int x, int y) {
+        int origX = x - borderWidth, origY = y - borderHeight;
+        if (origX < 0 || origX >= origWidth || origY < 0 || origY >= origHeight) {
+            return -1;
+        }
+        return dataOffset + (origY * origWidth + origX) * channels;
+    }
+
+    /**
+     * Reads a sample and scales it to the range 0-255
+     * @param index int index of sample in buffer
+     * @return sample value between 0 and 255
+     */
+    private int sample(int index) {
+        int value = buffer.get(index) & 0xFF;
+        return maxValue == WHITE ? value : value * WHITE / maxValue;
+    }
+}
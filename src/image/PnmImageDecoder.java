@@ -0,0 +1,104 @@
+package image;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Decoder for binary PGM (P5) and PPM (P6) files with 8 bit samples. The file is mapped to memory and
+ * its pixels are read from it directly, without copying.
+ */
+public class PnmImageDecoder implements ImageDecoder {
+    private static final char MAGIC_START = 'P'; // first byte of a PNM file
+    private static final char GREY_MAGIC = '5'; // second byte of a binary PGM file
+    private static final char COLOR_MAGIC = '6'; // second byte of a binary PPM file
+    private static final char COMMENT = '#'; // start of a comment in the header
+    private static final int MAX_SAMPLE = 255; // greatest maximum value of an 8 bit sample
+
+    /**
+     * Checks the magic number at the start of the file
+     * @param filename a path to an image file on disk
+     * @return true if the file is a binary PGM or PPM file
+     * @throws IOException if the file could not be read
+     */
+    @Override
+    public boolean canDecode(String filename) throws IOException {
+        try (InputStream in = Files.newInputStream(Path.of(filename))) {
+            int first = in.read(), second = in.read();
+            return first == MAGIC_START && (second == GREY_MAGIC || second == COLOR_MAGIC);
+        }
+    }
+
+    /**
+     * Maps the file to memory and parses its header
+     * @param filename a path to a PGM or PPM file on disk
+     * @return an Image reading its pixels from the mapped file
+     * @throws IOException if the file could not be read or is malformed
+     */
+    @Override
+    public Image decode(String filename) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int channels = buffer.get(1) == GREY_MAGIC ? 1 : 3;
+        buffer.position(2);
+        int width = readHeaderInt(buffer);
+        int height = readHeaderInt(buffer);
+        int maxValue = readHeaderInt(buffer);
+        if (width <= 0 || height <= 0 || maxValue <= 0 || maxValue > MAX_SAMPLE) {
+            throw new IOException(String.format("Unsupported PNM header in \"%s\"", filename));
+        }
+        // a single whitespace separates the header from the samples
+        int dataOffset = buffer.position() + 1;
+        if ((long) dataOffset + (long) width * height * channels > buffer.limit()) {
+            throw new IOException(String.format("Truncated PNM file \"%s\"", filename));
+        }
+        return new MappedImage(buffer, dataOffset, channels, maxValue, width, height);
+    }
+
+    /**
+     * Reads the next number in the header, skipping whitespace and comments. The buffer is left at the
+     * byte following the number.
+     * @param buffer ByteBuffer positioned inside the header
+     * @return the number read
+     * @throws IOException if the header is malformed
+     */
+    private static int readHeaderInt(MappedByteBuffer buffer) throws IOException {
+        int c = nextHeaderByte(buffer);
+        while (Character.isWhitespace(c) || c == COMMENT) {
+            if (c == COMMENT) {
+                while (c != '\n' && c != '\r') {
+                    c = nextHeaderByte(buffer);
+                }
+            }
+            c = nextHeaderByte(buffer);
+        }
+        if (!Character.isDigit(c)) {
+            throw new IOException("Malformed PNM header");
+        }
+        int value = 0;
+        while (Character.isDigit(c)) {
+            value = value * 10 + (c - '0');
+            c = nextHeaderByte(buffer);
+        }
+        buffer.position(buffer.position() - 1);
+        return value;
+    }
+
+    /**
+     * @param buffer ByteBuffer positioned inside the header
+     * @return next byte of the header
+     * @throws IOException if the header ends before the samples
+     */
+    private static int nextHeaderByte(MappedByteBuffer buffer) throws IOException {
+        if (!buffer.hasRemaining()) {
+            throw new IOException("Malformed PNM header");
+        }
+        return buffer.get() & 0xFF;
+    }
+}
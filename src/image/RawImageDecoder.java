@@ -0,0 +1,54 @@
+package image;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Decoder for raw 8 bit luminance frames, one byte per pixel row after row with no header. The
+ * dimensions are taken from the file name, which must end in WIDTHxHEIGHT.raw or WIDTHxHEIGHT.gray,
+ * for example frame_640x480.raw. The file is mapped to memory and its pixels are read from it directly.
+ */
+public class RawImageDecoder implements ImageDecoder {
+    // file name ending in the dimensions of the frame
+    private static final Pattern RAW_FILENAME = Pattern.compile(".*?(\\d+)x(\\d+)\\.(raw|gray)$");
+    private static final int MAX_SAMPLE = 255; // maximum value of an 8 bit sample
+
+    /**
+     * Checks the file name for the dimensions of the frame
+     * @param filename a path to an image file on disk
+     * @return true if the file name ends in WIDTHxHEIGHT.raw or WIDTHxHEIGHT.gray
+     */
+    @Override
+    public boolean canDecode(String filename) {
+        return RAW_FILENAME.matcher(filename).matches();
+    }
+
+    /**
+     * Maps the file to memory
+     * @param filename a path to a raw luminance file on disk
+     * @return an Image reading its pixels from the mapped file
+     * @throws IOException if the file could not be read or its size does not match its name
+     */
+    @Override
+    public Image decode(String filename) throws IOException {
+        Matcher matcher = RAW_FILENAME.matcher(filename);
+        if (!matcher.matches()) {
+            throw new IOException(String.format("No dimensions in raw file name \"%s\"", filename));
+        }
+        int width = Integer.parseInt(matcher.group(1));
+        int height = Integer.parseInt(matcher.group(2));
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(Path.of(filename), StandardOpenOption.READ)) {
+            if (width <= 0 || height <= 0 || channel.size() != (long) width * height) {
+                throw new IOException(String.format("Size of \"%s\" does not match its name", filename));
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        return new MappedImage(buffer, 0, 1, MAX_SAMPLE, width, height);
+    }
+}
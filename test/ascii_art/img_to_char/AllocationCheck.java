@@ -0,0 +1,50 @@
+package ascii_art.img_to_char;
+
+import image.Image;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Regression check that a warm render into a given array allocates nothing but a few bytes, with every
+ * dither and in several resolutions. Exits with status 1 on failure. Run with
+ * java ascii_art.img_to_char.AllocationCheck
+ */
+public class AllocationCheck {
+    private static final int IMAGE_SIZE = 1024; // width and height of the image in pixels
+    private static final int[] CHARS_IN_ROW = {64, 512}; // resolutions checked
+    private static final int WARMUP_RENDERS = 300; // untimed renders, so the matching is compiled
+    private static final int MEASURED_RENDERS = 100; // renders whose allocations are measured
+    private static final long MAX_BYTES_PER_RENDER = 1024; // allowed allocation of a warm render
+    private static final Character[] CHAR_SET = {'0', '1', '2', '3'};
+
+    public static void main(String[] args) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        Image image = TestImages.waves(IMAGE_SIZE);
+        BrightnessImgCharMatcher matcher = new BrightnessImgCharMatcher(image, "Courier New");
+        boolean failed = false;
+        for (int numCharsInRow : CHARS_IN_ROW) {
+            for (Dither dither : Dither.values()) {
+                char[][] ascii = null;
+                for (int i = 0; i < WARMUP_RENDERS; i++) {
+                    ascii = matcher.chooseChars(numCharsInRow, CHAR_SET, dither, ascii);
+                }
+                long before = threads.getThreadAllocatedBytes(threadId);
+                for (int i = 0; i < MEASURED_RENDERS; i++) {
+                    ascii = matcher.chooseChars(numCharsInRow, CHAR_SET, dither, ascii);
+                }
+                long bytesPerRender = (threads.getThreadAllocatedBytes(threadId) - before) / MEASURED_RENDERS;
+                if (bytesPerRender > MAX_BYTES_PER_RENDER) {
+                    System.out.println("FAILED " + numCharsInRow + " " + dither + ": " + bytesPerRender +
+                            " bytes per render");
+                    failed = true;
+                }
+            }
+        }
+        if (failed) {
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+}
@@ -0,0 +1,38 @@
+package ascii_art.img_to_char;
+
+import image.Image;
+
+/**
+ * Benchmark of the cost of every dither relative to matching without one. Run with
+ * java ascii_art.img_to_char.DitherBenchmark [image size] [chars in row]
+ */
+public class DitherBenchmark {
+    private static final int DEFAULT_IMAGE_SIZE = 1024; // width and height of the image in pixels
+    private static final int DEFAULT_CHARS_IN_ROW = 256; // resolution matched
+    private static final int WARMUP_RENDERS = 200; // untimed renders before timing every dither
+    private static final int TIMED_RENDERS = 500; // timed renders of every dither
+    private static final Character[] CHAR_SET = {'0', '1', '2', '3'}; // small set, where dithering matters
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_IMAGE_SIZE;
+        int numCharsInRow = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_CHARS_IN_ROW;
+        Image image = TestImages.waves(size);
+        BrightnessImgCharMatcher matcher = new BrightnessImgCharMatcher(image, "Courier New");
+        double baseline = 0;
+        for (Dither dither : Dither.values()) {
+            char[][] ascii = null;
+            for (int i = 0; i < WARMUP_RENDERS; i++) {
+                ascii = matcher.chooseChars(numCharsInRow, CHAR_SET, dither, ascii);
+            }
+            long start = System.nanoTime();
+            for (int i = 0; i < TIMED_RENDERS; i++) {
+                ascii = matcher.chooseChars(numCharsInRow, CHAR_SET, dither, ascii);
+            }
+            double micros = (System.nanoTime() - start) / 1000.0 / TIMED_RENDERS;
+            if (dither == Dither.NONE) {
+                baseline = micros;
+            }
+            System.out.printf("%-16s %10.1f us/render %6.2fx%n", dither, micros, micros / baseline);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package ascii_art.img_to_char;
+
+import image.Image;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Regression check that distinct images of integer greys, such as luminance images decoded from files,
+ * get distinct content hashes, and that the low bits of the hash depend on the pixels. Exits with
+ * status 1 on failure. Run with java ascii_art.img_to_char.HashCollisionCheck
+ */
+public class HashCollisionCheck {
+    private static final int IMAGE_SIZE = 64; // width and height of the images in pixels
+    private static final int CHARS_IN_ROW = 16; // resolution fingerprinted
+    private static final int IMAGES = 20000; // images fingerprinted
+    private static final int LOW_BITS = 44; // low bits of the hash that must vary between images
+    private static final Character[] CHAR_SET = {'0', '1', '2', '3'};
+
+    public static void main(String[] args) {
+        Map<Long, Long> seeds = new HashMap<>(); // seed of the image of every content hash
+        Map<Long, Long> lowBits = new HashMap<>(); // seed of the image of every value of the low bits
+        int collisions = 0;
+        for (long seed = 0; seed < IMAGES; seed++) {
+            long contentHash = fingerprint(seed).getContentHash();
+            Long other = seeds.putIfAbsent(contentHash, seed);
+            if (other != null && !samePixels(other, seed)) {
+                System.out.println("FAILED images " + other + " and " + seed + " share content hash " +
+                        Long.toHexString(contentHash));
+                collisions++;
+            }
+            lowBits.putIfAbsent(contentHash & ((1L << LOW_BITS) - 1), seed);
+        }
+        // random images should give almost as many values of the low bits as images
+        if (lowBits.size() < IMAGES / 2) {
+            System.out.println("FAILED low " + LOW_BITS + " bits took only " + lowBits.size() + " values");
+            collisions++;
+        }
+        if (collisions > 0) {
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+
+    /**
+     * Fingerprints a random image after rendering it, as the shell does
+     * @param seed long seed of the image
+     * @return ImageFingerprint of the image
+     */
+    private static ImageFingerprint fingerprint(long seed) {
+        BrightnessImgCharMatcher matcher =
+                new BrightnessImgCharMatcher(TestImages.random(IMAGE_SIZE, IMAGE_SIZE, seed), "Courier New");
+        matcher.chooseChars(CHARS_IN_ROW, CHAR_SET);
+        return matcher.getFingerprint(CHARS_IN_ROW);
+    }
+
+    /**
+     * @param seed long seed of one image
+     * @param otherSeed long seed of another image
+     * @return whether the images have the same pixels
+     */
+    private static boolean samePixels(long seed, long otherSeed) {
+        Image image = TestImages.random(IMAGE_SIZE, IMAGE_SIZE, seed);
+        Image other = TestImages.random(IMAGE_SIZE, IMAGE_SIZE, otherSeed);
+        for (int y = 0; y < IMAGE_SIZE; y++) {
+            for (int x = 0; x < IMAGE_SIZE; x++) {
+                if (image.getGreyPixel(x, y) != other.getGreyPixel(x, y)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,68 @@
+package ascii_art.img_to_char;
+
+import ascii_output.AsciiOutput;
+import image.Image;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Checks that rendering several resolutions at once gives the same chars as rendering every resolution on
+ * its own, including widths that are not powers of 2 and whose sub-images do not fit in the finer ones,
+ * and that widths outside the image are rejected. Run with java ascii_art.img_to_char.MultiResolutionCheck, exits with status 1 on failure.
+ */
+public class MultiResolutionCheck {
+    private static final int IMAGE_SIZE = 1024; // width and height of the image in pixels
+    private static final Character[] CHAR_SET = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9'};
+    // sets of resolutions rendered together
+    private static final int[][] LEVELS = {
+            {32, 64, 128, 256},
+            {51, 100},
+            {48, 96, 100, 200},
+            {3, 7, 512},
+            {1, 1024}};
+    private static final int SMALL_IMAGE_SIZE = 64; // width and height of the image for illegal widths
+    // sets of resolutions including widths outside the small image
+    private static final int[][] ILLEGAL_LEVELS = {
+            {16, 128},
+            {0, 8},
+            {-8, 8}};
+
+    public static void main(String[] args) {
+        Image image = TestImages.waves(IMAGE_SIZE);
+        boolean failed = false;
+        for (int[] levels : LEVELS) {
+            Map<Integer, char[][]> written = new HashMap<>();
+            Map<Integer, AsciiOutput> outputs = new HashMap<>();
+            for (int level : levels) {
+                outputs.put(level, chars -> written.put(level, chars));
+            }
+            SortedMap<Integer, char[][]> together = new BrightnessImgCharMatcher(image, "Courier New")
+                    .chooseChars(outputs, CHAR_SET, Dither.NONE);
+            for (int level : levels) {
+                char[][] alone = new BrightnessImgCharMatcher(image, "Courier New").chooseChars(level, CHAR_SET);
+                if (!Arrays.deepEquals(alone, together.get(level)) || written.get(level) != together.get(level)) {
+                    System.out.printf("FAILED %s at %d chars in row%n", Arrays.toString(levels), level);
+                    failed = true;
+                }
+            }
+        }
+        Image smallImage = TestImages.waves(SMALL_IMAGE_SIZE);
+        for (int[] levels : ILLEGAL_LEVELS) {
+            try {
+                new BrightnessImgCharMatcher(smallImage, "Courier New").chooseChars(levels, CHAR_SET);
+                System.out.printf("FAILED %s accepted on a %dpx image%n", Arrays.toString(levels),
+                        SMALL_IMAGE_SIZE);
+                failed = true;
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+        if (failed) {
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+}
@@ -0,0 +1,86 @@
+package ascii_art.img_to_char;
+
+import image.Image;
+
+import java.awt.*;
+import java.util.Random;
+
+/**
+ * Synthetic images for the checks and benchmarks of the matcher, so they need no image files
+ */
+class TestImages {
+    private static final int WHITE = 255; // grey value of a white pixel
+
+    /**
+     * Creates a square image of smooth waves of grey, with a fine pattern on top
+     * @param size int width and height of the image in pixels
+     * @return Image computing its pixels on demand
+     */
+    static Image waves(int size) {
+        return new Image() {
+            @Override
+            public Color getPixel(int x, int y) {
+                int grey = grey(x, y);
+                return new Color(grey, grey, grey);
+            }
+
+            @Override
+            public double getGreyPixel(int x, int y) {
+                return grey(x, y);
+            }
+
+            @Override
+            public int getWidth() {
+                return size;
+            }
+
+            @Override
+            public int getHeight() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Creates an image of random integer greys, as luminance images decoded from files have
+     * @param width int width of the image in pixels
+     * @param height int height of the image in pixels
+     * @param seed long seed of the greys, the same seed giving the same image
+     * @return Image holding its pixels
+     */
+    static Image random(int width, int height, long seed) {
+        int[] greys = new Random(seed).ints(width * height, 0, WHITE + 1).toArray();
+        return new Image() {
+            @Override
+            public Color getPixel(int x, int y) {
+                int grey = greys[y * width + x];
+                return new Color(grey, grey, grey);
+            }
+
+            @Override
+            public double getGreyPixel(int x, int y) {
+                return greys[y * width + x];
+            }
+
+            @Override
+            public int getWidth() {
+                return width;
+            }
+
+            @Override
+            public int getHeight() {
+                return height;
+            }
+        };
+    }
+
+    /**
+     * @param x column coordinate of pixel
+     * @param y row coordinate of pixel
+     * @return grey value of the pixel, between 0 and 255
+     */
+    private static int grey(int x, int y) {
+        double wave = 127 + 100 * Math.sin(x / 37.0) * Math.cos(y / 53.0);
+        return Math.max(0, Math.min(WHITE, (int) wave + ((x ^ y) & 15)));
+    }
+}
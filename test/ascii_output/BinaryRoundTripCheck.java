@@ -0,0 +1,74 @@
+package ascii_output;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Regression check that renders written by {@link BinaryAsciiOutput} read back the same with
+ * {@link BinaryAsciiReader}, whole and in slices of rows, for palettes needing from 0 to 9 bits a char
+ * and rows not ending on a byte boundary. Exits with status 1 on failure. Run with
+ * java ascii_output.BinaryRoundTripCheck
+ */
+public class BinaryRoundTripCheck {
+    private static final int[] PALETTE_SIZES = {1, 2, 3, 10, 200, 300}; // 0, 1, 2, 4, 8 and 9 bits a char
+    private static final int[][] DIMENSIONS = {{0, 0}, {1, 1}, {7, 13}, {64, 64}, {37, 101}}; // rows, cols
+
+    public static void main(String[] args) throws IOException {
+        File file = File.createTempFile("ascii", ".bin");
+        file.deleteOnExit();
+        BinaryAsciiOutput output = new BinaryAsciiOutput(file.getPath());
+        boolean failed = false;
+        for (int paletteSize : PALETTE_SIZES) {
+            // chars above a byte, as some char sets use
+            char[] charSet = TestRenders.charSet(paletteSize > 100 ? '\u2500' : '0', paletteSize);
+            for (int[] dimensions : DIMENSIONS) {
+                int rows = dimensions[0], cols = dimensions[1];
+                char[][] chars = TestRenders.random(rows, cols, charSet, paletteSize * 31L + rows);
+                output.output(chars);
+                BinaryAsciiReader reader = new BinaryAsciiReader(file.getPath());
+                String name = paletteSize + " chars " + rows + "x" + cols;
+                if (reader.getRows() != rows || reader.getCols() != cols) {
+                    System.out.println("FAILED " + name + ": read " + reader.getRows() + "x" +
+                            reader.getCols());
+                    failed = true;
+                    continue;
+                }
+                failed |= !check(name + " whole", reader.readRows(0, rows), chars, 0, rows);
+                // a slice from the middle, the last row and an empty slice
+                failed |= !check(name + " middle", reader.readRows(rows / 3, rows * 2 / 3), chars,
+                        rows / 3, rows * 2 / 3);
+                if (rows > 0) {
+                    failed |= !check(name + " last", reader.readRows(rows - 1, rows), chars, rows - 1, rows);
+                }
+                failed |= !check(name + " empty", reader.readRows(rows / 2, rows / 2), chars,
+                        rows / 2, rows / 2);
+                // a slice through another output
+                char[][][] written = new char[1][][];
+                reader.writeTo(slice -> written[0] = slice, rows / 4, rows);
+                failed |= !check(name + " writeTo", written[0], chars, rows / 4, rows);
+            }
+        }
+        if (failed) {
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+
+    /**
+     * Compares rows read back with a range of the rows written
+     * @param name String describing the case, printed on failure
+     * @param read array of arrays of chars read back
+     * @param chars array of arrays of chars written
+     * @param from int index of first row, inclusive
+     * @param to int index of last row, exclusive
+     * @return true if the rows are the same
+     */
+    private static boolean check(String name, char[][] read, char[][] chars, int from, int to) {
+        if (Arrays.deepEquals(read, Arrays.copyOfRange(chars, from, to))) {
+            return true;
+        }
+        System.out.println("FAILED " + name + ": rows " + from + "-" + to + " differ");
+        return false;
+    }
+}
@@ -0,0 +1,58 @@
+package ascii_output;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Benchmark of the size and the time of writing the same render as HTML and as binary, and of reading
+ * the binary file back. Run with java ascii_output.OutputBenchmark [rows] [chars in row] [chars in set]
+ */
+public class OutputBenchmark {
+    private static final int DEFAULT_ROWS = 512; // rows of the render
+    private static final int DEFAULT_CHARS_IN_ROW = 512; // chars in a row of the render
+    private static final int DEFAULT_CHAR_SET_SIZE = 10; // chars the render is made of, as the shell's 0-9
+    private static final int WARMUP_WRITES = 20; // untimed writes before timing every output
+    private static final int TIMED_WRITES = 50; // timed writes of every output
+
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ROWS;
+        int numCharsInRow = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_CHARS_IN_ROW;
+        int charSetSize = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_CHAR_SET_SIZE;
+        char[][] chars = TestRenders.random(rows, numCharsInRow, TestRenders.charSet('0', charSetSize), 0);
+        File html = File.createTempFile("ascii", ".html");
+        File binary = File.createTempFile("ascii", ".bin");
+        html.deleteOnExit();
+        binary.deleteOnExit();
+        time("html", new HtmlAsciiOutput(html.getPath(), "Courier New"), chars, html);
+        time("binary", new BinaryAsciiOutput(binary.getPath()), chars, binary);
+        // reading the whole binary file back
+        for (int i = 0; i < WARMUP_WRITES; i++) {
+            new BinaryAsciiReader(binary.getPath()).readRows(0, rows);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < TIMED_WRITES; i++) {
+            new BinaryAsciiReader(binary.getPath()).readRows(0, rows);
+        }
+        System.out.printf("%-16s %10s %8.2f ms/read%n", "binary read", "",
+                (System.nanoTime() - start) / 1e6 / TIMED_WRITES);
+    }
+
+    /**
+     * Times writing a render to an output and prints the size of the file written
+     * @param name String name of the output, printed
+     * @param output AsciiOutput to write to
+     * @param chars array of arrays of chars to write
+     * @param file File the output writes to
+     */
+    private static void time(String name, AsciiOutput output, char[][] chars, File file) {
+        for (int i = 0; i < WARMUP_WRITES; i++) {
+            output.output(chars);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < TIMED_WRITES; i++) {
+            output.output(chars);
+        }
+        double millis = (System.nanoTime() - start) / 1e6 / TIMED_WRITES;
+        System.out.printf("%-16s %10d B %8.2f ms/write%n", name, file.length(), millis);
+    }
+}
@@ -0,0 +1,41 @@
+package ascii_output;
+
+import java.util.Random;
+
+/**
+ * Synthetic renders for the checks and benchmarks of the outputs, so they need no image to match
+ */
+class TestRenders {
+    /**
+     * Creates a render of chars picked at random from a set
+     * @param rows int number of rows of chars
+     * @param cols int number of chars in a row
+     * @param charSet chars to pick from
+     * @param seed long seed of the picks, the same seed giving the same render
+     * @return array of arrays of chars
+     */
+    static char[][] random(int rows, int cols, char[] charSet, long seed) {
+        Random random = new Random(seed);
+        char[][] chars = new char[rows][cols];
+        for (char[] row : chars) {
+            for (int x = 0; x < cols; x++) {
+                row[x] = charSet[random.nextInt(charSet.length)];
+            }
+        }
+        return chars;
+    }
+
+    /**
+     * Creates a set of consecutive chars
+     * @param first char first char of the set
+     * @param size int number of chars in the set
+     * @return array of the chars
+     */
+    static char[] charSet(char first, int size) {
+        char[] charSet = new char[size];
+        for (int i = 0; i < size; i++) {
+            charSet[i] = (char) (first + i);
+        }
+        return charSet;
+    }
+}
@@ -0,0 +1,134 @@
+package image;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Regression check of decoding image files: a PGM with comments in its header, a PPM, a raw frame, a raw
+ * frame starting like a PGM, and truncated files, which must not be decoded. Exits with status 1 on
+ * failure. Run with java image.DecodeCheck
+ */
+public class DecodeCheck {
+    private static final int WIDTH = 5; // width of the images in pixels, padded to 8
+    private static final int HEIGHT = 3; // height of the images in pixels, padded to 4
+    private static final int PADDED_WIDTH = 8;
+    private static final int PADDED_HEIGHT = 4;
+    private static final int WHITE = 255; // grey value of the border
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Files.createTempDirectory("decode");
+        dir.toFile().deleteOnExit();
+        byte[] greys = new byte[WIDTH * HEIGHT];
+        for (int i = 0; i < greys.length; i++) {
+            greys[i] = (byte) (i * 17);
+        }
+        byte[] colors = new byte[WIDTH * HEIGHT * 3];
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = (byte) (i * 5);
+        }
+        double[] colorGreys = new double[WIDTH * HEIGHT];
+        for (int i = 0; i < colorGreys.length; i++) {
+            colorGreys[i] = Image.getGreyPixel(colors[i * 3] & 0xFF, colors[i * 3 + 1] & 0xFF,
+                    colors[i * 3 + 2] & 0xFF);
+        }
+        // a raw frame whose first bytes are "P5"
+        byte[] pnmLike = greys.clone();
+        pnmLike[0] = 'P';
+        pnmLike[1] = '5';
+        boolean failed = false;
+        failed |= !check("PGM with comments",
+                write(dir, "comments.pgm", header("P5\n# a comment\n" + WIDTH + " # width\n" + HEIGHT +
+                        "\n255\n"), greys), toDoubles(greys));
+        failed |= !check("PPM", write(dir, "color.ppm", header("P6 " + WIDTH + " " + HEIGHT + " 255\n"),
+                colors), colorGreys);
+        failed |= !check("raw", write(dir, "frame_" + WIDTH + "x" + HEIGHT + ".raw", new byte[0], greys),
+                toDoubles(greys));
+        failed |= !check("raw starting with P5", write(dir, "magic_" + WIDTH + "x" + HEIGHT + ".raw",
+                new byte[0], pnmLike), toDoubles(pnmLike));
+        failed |= !check("truncated PGM", write(dir, "truncated.pgm",
+                header("P5\n" + WIDTH + " " + HEIGHT + "\n255\n"), Arrays.copyOf(greys, greys.length - 1)),
+                null);
+        failed |= !check("truncated raw", write(dir, "short_" + WIDTH + "x" + HEIGHT + ".raw", new byte[0],
+                Arrays.copyOf(greys, greys.length - 1)), null);
+        if (failed) {
+            System.exit(1);
+        }
+        System.out.println("OK");
+    }
+
+    /**
+     * Decodes a file and compares its pixels with the grey values expected, inside a white border
+     * @param name String describing the case, printed on failure
+     * @param file Path of the file to decode
+     * @param expected grey values of the pixels row after row, or null if the file must not be decoded
+     * @return true if the file was decoded as expected
+     */
+    private static boolean check(String name, Path file, double[] expected) {
+        Image image = Image.fromFile(file.toString());
+        if (expected == null) {
+            if (image != null) {
+                System.out.println("FAILED " + name + ": decoded");
+                return false;
+            }
+            return true;
+        }
+        if (image == null || image.getWidth() != PADDED_WIDTH || image.getHeight() != PADDED_HEIGHT) {
+            System.out.println("FAILED " + name + ": " + (image == null ? "not decoded" :
+                    "decoded as " + image.getWidth() + "x" + image.getHeight()));
+            return false;
+        }
+        int borderWidth = (PADDED_WIDTH - WIDTH) / 2, borderHeight = (PADDED_HEIGHT - HEIGHT) / 2;
+        for (int y = 0; y < PADDED_HEIGHT; y++) {
+            for (int x = 0; x < PADDED_WIDTH; x++) {
+                int origX = x - borderWidth, origY = y - borderHeight;
+                boolean inside = origX >= 0 && origX < WIDTH && origY >= 0 && origY < HEIGHT;
+                double grey = image.getGreyPixel(x, y);
+                if (inside ? grey != expected[origY * WIDTH + origX] : grey < WHITE - 1e-6) {
+                    System.out.printf("FAILED %s: pixel %d,%d is %f%n", name, x, y, grey);
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes a file of a header followed by samples
+     * @param dir Path of the directory to write in
+     * @param name String name of the file
+     * @param header bytes of the header
+     * @param samples bytes of the samples
+     * @return Path of the file written
+     */
+    private static Path write(Path dir, String name, byte[] header, byte[] samples) throws IOException {
+        byte[] contents = Arrays.copyOf(header, header.length + samples.length);
+        System.arraycopy(samples, 0, contents, header.length, samples.length);
+        Path file = dir.resolve(name);
+        Files.write(file, contents);
+        file.toFile().deleteOnExit();
+        return file;
+    }
+
+    /**
+     * @param header String text of a header
+     * @return bytes of the header
+     */
+    private static byte[] header(String header) {
+        return header.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * @param samples 8 bit samples
+     * @return the samples as grey values
+     */
+    private static double[] toDoubles(byte[] samples) {
+        double[] values = new double[samples.length];
+        for (int i = 0; i < samples.length; i++) {
+            values[i] = samples[i] & 0xFF;
+        }
+        return values;
+    }
+}